@@ -0,0 +1,42 @@
+#!/bin/bash
+# Compares two CSV results of run-benchmarks.sh.
+# All benchmarks measure average time, so a ratio above 1 means the new build is slower.
+# Prints every benchmark present in both files and exits with 1 if any of them
+# is slower than THRESHOLD times (1.1 by default).
+#
+# Usage: compare-results.sh <old results.csv> <new results.csv>
+if [[ $# -ne 2 ]]; then
+    echo "Usage: compare-results.sh <old results.csv> <new results.csv>"
+    exit 2
+fi
+
+awk -F ',' -v threshold="${THRESHOLD:-1.1}" '
+    function key(   k, i) {
+        k = $1
+        for (i = 8; i <= NF; i++) {
+            k = k " " $i
+        }
+        return k
+    }
+    {
+        gsub(/"/, "")
+    }
+    FNR == 1 {
+        next
+    }
+    NR == FNR {
+        old[key()] = $5
+        next
+    }
+    key() in old {
+        ratio = $5 / old[key()]
+        mark = ratio > threshold ? "REGRESSION" : ""
+        printf "%-80s %14.3f %14.3f %8.3f %s %s\n", key(), old[key()], $5, ratio, $7, mark
+        if (ratio > threshold) {
+            failed = 1
+        }
+    }
+    END {
+        exit failed
+    }
+' "$1" "$2"
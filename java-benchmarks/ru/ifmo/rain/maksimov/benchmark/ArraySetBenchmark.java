@@ -0,0 +1,73 @@
+package ru.ifmo.rain.maksimov.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.ifmo.rain.maksimov.arrayset.ArraySet;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Benchmarks for navigation methods of {@link ArraySet}.
+ * Every invocation queries one of {@value #QUERIES} random keys.
+ * Sets are built with every {@link ArraySet.Layout} to compare search over them.
+ *
+ * @author koalaa13 (github.com/koalaa13)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ArraySetBenchmark {
+    private static final int QUERIES = 1 << 16;
+
+    @Param({"1000", "100000", "10000000"})
+    public int size;
+
+    @Param({"SORTED", "EYTZINGER"})
+    public ArraySet.Layout layout;
+
+    private ArraySet<Integer> set;
+    private final Integer[] queries = new Integer[QUERIES];
+    private int next;
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(size);
+        set = new ArraySet<>(random.ints(size, 0, 2 * size).boxed().collect(Collectors.toList()), null, layout);
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = random.nextInt(2 * size);
+        }
+    }
+
+    private Integer query() {
+        return queries[next++ & (QUERIES - 1)];
+    }
+
+    @Benchmark
+    public boolean contains() {
+        return set.contains(query());
+    }
+
+    @Benchmark
+    public Integer lower() {
+        return set.lower(query());
+    }
+
+    @Benchmark
+    public Integer floor() {
+        return set.floor(query());
+    }
+
+    @Benchmark
+    public Integer ceiling() {
+        return set.ceiling(query());
+    }
+
+    @Benchmark
+    public Integer higher() {
+        return set.higher(query());
+    }
+}
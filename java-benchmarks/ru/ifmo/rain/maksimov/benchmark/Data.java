@@ -0,0 +1,60 @@
+package ru.ifmo.rain.maksimov.benchmark;
+
+import info.kgeorgiy.java.advanced.student.Student;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Synthetic data sets for benchmarks
+ *
+ * @author koalaa13 (github.com/koalaa13)
+ */
+class Data {
+    private static final String[] FIRST_NAMES = {
+            "Ivan", "Petr", "Anna", "Maria", "Sergey", "Olga", "Dmitry", "Elena", "Alexey", "Natalia"
+    };
+    private static final String[] LAST_NAMES = {
+            "Ivanov", "Petrov", "Sidorov", "Smirnov", "Kuznetsov", "Popov", "Vasiliev", "Sokolov"
+    };
+
+    private Data() {
+    }
+
+    /**
+     * Returns list of given size of random integers, same for the same size
+     *
+     * @param size size of the list
+     * @return {@link List} of random integers
+     */
+    static List<Integer> integers(int size) {
+        final Random random = new Random(size);
+        final List<Integer> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(random.nextInt());
+        }
+        return result;
+    }
+
+    /**
+     * Returns list of given size of random students, there are about 30 students in each group
+     *
+     * @param size size of the list
+     * @return {@link List} of random students
+     */
+    static List<Student> students(int size) {
+        final Random random = new Random(size);
+        final int groups = Math.max(1, size / 30);
+        final List<Student> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(new Student(
+                    random.nextInt(),
+                    FIRST_NAMES[random.nextInt(FIRST_NAMES.length)],
+                    LAST_NAMES[random.nextInt(LAST_NAMES.length)],
+                    "M" + random.nextInt(groups)
+            ));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,47 @@
+package ru.ifmo.rain.maksimov.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.ifmo.rain.maksimov.walk.HashFunction;
+import ru.ifmo.rain.maksimov.walk.HashFunctions;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for {@link HashFunction hash functions} of the walk on in-memory data,
+ * without file system access
+ *
+ * @author koalaa13 (github.com/koalaa13)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HashFunctionBenchmark {
+    @Param({"fnv32", "fnv1a64", "xxhash64", "sha256"})
+    public String function;
+
+    @Param({"65536", "16777216"})
+    public int size;
+
+    private HashFunction hashFunction;
+    private ByteBuffer data;
+
+    @Setup
+    public void setup() {
+        hashFunction = HashFunctions.forName(function);
+        final byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        data = ByteBuffer.allocateDirect(size).put(bytes).flip();
+    }
+
+    @Benchmark
+    public byte[] hash() {
+        final HashFunction.Hasher hasher = hashFunction.newHasher();
+        hasher.update(data);
+        return hasher.digest();
+    }
+}
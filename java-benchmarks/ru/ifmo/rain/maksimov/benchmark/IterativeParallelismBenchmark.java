@@ -0,0 +1,111 @@
+package ru.ifmo.rain.maksimov.benchmark;
+
+import info.kgeorgiy.java.advanced.concurrent.AdvancedIP;
+import org.openjdk.jmh.annotations.*;
+import ru.ifmo.rain.maksimov.concurrent.IterativeParallelism;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Benchmarks for {@link IterativeParallelism} operations with different numbers of threads.
+ * Grain size 0 stands for one block per thread, other sizes for the work stealing mode.
+ *
+ * @author koalaa13 (github.com/koalaa13)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IterativeParallelismBenchmark {
+    private static final AdvancedIP.Monoid<Integer> SUM = new AdvancedIP.Monoid<>(0, Integer::sum);
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    @Param({"1000", "100000", "10000000"})
+    public int size;
+
+    @Param({"0", "1024"})
+    public int grain;
+
+    private IterativeParallelism parallelism;
+    private List<Integer> values;
+    private int[] ints;
+    // negative values, which are expensive to map, go first
+    private List<Integer> skewed;
+
+    @Setup
+    public void setup() {
+        parallelism = grain == 0 ? new IterativeParallelism() : new IterativeParallelism(grain);
+        values = Data.integers(size);
+        ints = values.stream().mapToInt(Integer::intValue).toArray();
+        skewed = values.stream().sorted().collect(Collectors.toList());
+    }
+
+    @TearDown
+    public void tearDown() {
+        parallelism.close();
+    }
+
+    @Benchmark
+    public Integer maximum() throws InterruptedException {
+        return parallelism.maximum(threads, values, Comparator.naturalOrder());
+    }
+
+    @Benchmark
+    public int maximumInts() throws InterruptedException {
+        return parallelism.maximum(threads, ints);
+    }
+
+    @Benchmark
+    public boolean any() throws InterruptedException {
+        return parallelism.any(threads, values, v -> v == 0);
+    }
+
+    @Benchmark
+    public List<Integer> filter() throws InterruptedException {
+        return parallelism.filter(threads, values, v -> v % 2 == 0);
+    }
+
+    @Benchmark
+    public List<Integer> map() throws InterruptedException {
+        return parallelism.map(threads, values, v -> v * 2);
+    }
+
+    @Benchmark
+    public List<Integer> mapSkewed() throws InterruptedException {
+        return parallelism.map(threads, skewed, v -> v < 0 ? burn(v) : v);
+    }
+
+    @Benchmark
+    public List<Integer> mapSkewedByCost() throws InterruptedException {
+        return parallelism.map(threads, skewed, v -> v < 0 ? burn(v) : v, v -> v < 0 ? 100 : 1);
+    }
+
+    private static int burn(int v) {
+        for (int i = 0; i < 100; i++) {
+            v = v * 31 + i;
+        }
+        return v;
+    }
+
+    @Benchmark
+    public Integer reduce() throws InterruptedException {
+        return parallelism.reduce(threads, values, SUM);
+    }
+
+    @Benchmark
+    public int sumInts() throws InterruptedException {
+        return parallelism.sum(threads, ints);
+    }
+
+    @Benchmark
+    public Integer mapReduce() throws InterruptedException {
+        return parallelism.mapReduce(threads, values, v -> v & 0xff, SUM);
+    }
+}
@@ -0,0 +1,56 @@
+package ru.ifmo.rain.maksimov.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.ifmo.rain.maksimov.concurrent.ParallelMapperImpl;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for {@link ParallelMapperImpl#map} with different numbers of threads, task queue capacities and scheduling modes
+ *
+ * @author koalaa13 (github.com/koalaa13)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParallelMapperBenchmark {
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    @Param({"16", "1024"})
+    public int capacity;
+
+    @Param({"false", "true"})
+    public boolean fair;
+
+    private ParallelMapperImpl mapper;
+    private List<Integer> values;
+
+    @Setup
+    public void setup() {
+        mapper = new ParallelMapperImpl(threads, capacity, fair);
+        values = Data.integers(size);
+    }
+
+    @TearDown
+    public void tearDown() {
+        mapper.close();
+    }
+
+    @Benchmark
+    public List<Integer> map() throws InterruptedException {
+        return mapper.map(v -> v * 2, values);
+    }
+
+    @Benchmark
+    public List<Integer> mapChunked() throws InterruptedException {
+        return mapper.map(v -> v * 2, values, 4096);
+    }
+}
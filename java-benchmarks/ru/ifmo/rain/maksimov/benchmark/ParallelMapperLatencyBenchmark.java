@@ -0,0 +1,76 @@
+package ru.ifmo.rain.maksimov.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.ifmo.rain.maksimov.concurrent.ParallelMapperImpl;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of small {@link ParallelMapperImpl#map} calls made while a huge call is computed,
+ * in FIFO and fair scheduling modes. Results of {@code small} are the interesting ones,
+ * {@code huge} only keeps the mapper busy.
+ *
+ * @author koalaa13 (github.com/koalaa13)
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class ParallelMapperLatencyBenchmark {
+    @Param({"2", "4"})
+    public int threads;
+
+    @Param({"16", "1024"})
+    public int capacity;
+
+    @Param({"false", "true"})
+    public boolean fair;
+
+    @Param({"1000000"})
+    public int hugeSize;
+
+    @Param({"16"})
+    public int smallSize;
+
+    private ParallelMapperImpl mapper;
+    private List<Integer> huge;
+    private List<Integer> small;
+
+    @Setup
+    public void setup() {
+        mapper = new ParallelMapperImpl(threads, capacity, fair);
+        huge = Data.integers(hugeSize);
+        small = Data.integers(smallSize);
+    }
+
+    @TearDown
+    public void tearDown() {
+        mapper.close();
+    }
+
+    // some hundreds of nanoseconds of work for a value
+    private static Integer work(Integer value) {
+        int result = value;
+        for (int i = 0; i < 100; i++) {
+            result = result * 31 + i;
+        }
+        return result;
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public List<Integer> huge() throws InterruptedException {
+        return mapper.map(ParallelMapperLatencyBenchmark::work, huge);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public List<Integer> small() throws InterruptedException {
+        return mapper.map(ParallelMapperLatencyBenchmark::work, small);
+    }
+}
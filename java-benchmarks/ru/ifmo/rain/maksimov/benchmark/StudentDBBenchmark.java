@@ -0,0 +1,66 @@
+package ru.ifmo.rain.maksimov.benchmark;
+
+import info.kgeorgiy.java.advanced.student.Group;
+import info.kgeorgiy.java.advanced.student.Student;
+import org.openjdk.jmh.annotations.*;
+import ru.ifmo.rain.maksimov.student.StudentDB;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for {@link StudentDB} queries on synthetic data sets
+ *
+ * @author koalaa13 (github.com/koalaa13)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class StudentDBBenchmark {
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int size;
+
+    private final StudentDB db = new StudentDB();
+    private List<Student> students;
+    private String group;
+
+    @Setup
+    public void setup() {
+        students = Data.students(size);
+        group = students.get(0).getGroup();
+    }
+
+    @Benchmark
+    public List<Group> getGroupsByName() {
+        return db.getGroupsByName(students);
+    }
+
+    @Benchmark
+    public String getLargestGroup() {
+        return db.getLargestGroup(students);
+    }
+
+    @Benchmark
+    public List<Student> sortStudentsByName() {
+        return db.sortStudentsByName(students);
+    }
+
+    @Benchmark
+    public List<Student> findStudentsByGroup() {
+        return db.findStudentsByGroup(students, group);
+    }
+
+    @Benchmark
+    public Map<String, String> findStudentNamesByGroup() {
+        return db.findStudentNamesByGroup(students, group);
+    }
+
+    @Benchmark
+    public String getMostPopularName() {
+        return db.getMostPopularName(students);
+    }
+}
@@ -0,0 +1,48 @@
+package ru.ifmo.rain.maksimov.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.ifmo.rain.maksimov.walk.RecursiveWalk;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for {@link RecursiveWalk#hash(String)} on files of different sizes
+ *
+ * @author koalaa13 (github.com/koalaa13)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WalkBenchmark {
+    @Param({"1024", "65536", "1048576", "67108864"})
+    public int fileSize;
+
+    private Path file;
+    private String filename;
+
+    @Setup
+    public void setup() throws IOException {
+        final byte[] data = new byte[fileSize];
+        new Random(fileSize).nextBytes(data);
+        file = Files.createTempFile("walk-benchmark", ".bin");
+        Files.write(file, data);
+        filename = file.toString();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public String hash() {
+        return RecursiveWalk.hash(filename);
+    }
+}
@@ -0,0 +1,45 @@
+#!/bin/bash
+# Compiles solutions and benchmarks and runs JMH, passing all arguments to it.
+# Results are written in CSV to results/<date>.csv, compare them with compare-results.sh.
+#
+# JMH jars (jmh-core, jmh-generator-annprocess, jopt-simple, commons-math3)
+# are not in the repository, they are taken from JMH_LIB, ../lib/jmh by default.
+#
+# Examples:
+#   ./run-benchmarks.sh ArraySetBenchmark -p size=1000000
+#   ./run-benchmarks.sh "IterativeParallelismBenchmark.map" -p threads=1,4
+ROOT="$(dirname $0)/.."
+JMH_LIB="${JMH_LIB:-${ROOT}/lib/jmh}"
+BUILD="${ROOT}/_build/benchmarks"
+RESULTS="$(dirname $0)/results"
+SOLUTIONS="${ROOT}/java-solutions/ru/ifmo/rain/maksimov"
+KG="${ROOT}/modules"
+CP="${JMH_LIB}/*:${ROOT}/lib/*"
+
+if ! ls "${JMH_LIB}"/jmh-core*.jar >/dev/null 2>&1; then
+    echo "JMH jars are not found in ${JMH_LIB}, set JMH_LIB to the directory with them" >&2
+    exit 1
+fi
+
+mkdir -p "${BUILD}" "${RESULTS}"
+
+javac -encoding UTF-8 -d "${BUILD}" -cp "${CP}" \
+    -processor org.openjdk.jmh.generators.BenchmarkProcessor \
+    $(find "${KG}/info.kgeorgiy.java.advanced.base" \
+           "${KG}/info.kgeorgiy.java.advanced.concurrent" \
+           "${KG}/info.kgeorgiy.java.advanced.mapper" \
+           "${KG}/info.kgeorgiy.java.advanced.student" \
+           "${SOLUTIONS}/walk" \
+           "${SOLUTIONS}/arrayset" \
+           "${SOLUTIONS}/concurrent" \
+           "${SOLUTIONS}/student" \
+           "$(dirname $0)/ru" \
+           -name "*.java" -not -name "module-info.java" -not -name "*Tests.java") \
+    "${SOLUTIONS}/utils/Helper.java" "${SOLUTIONS}/utils/ConcurrentUtils.java" || exit 1
+
+java -cp "${BUILD}:${CP}" org.openjdk.jmh.Main \
+    -rf csv -rff "${RESULTS}/$(date +%Y-%m-%d-%H%M%S).csv" "$@"
+STATUS=$?
+
+rm -r "${ROOT}/_build"
+exit ${STATUS}
@@ -1,11 +1,25 @@
 package ru.ifmo.rain.maksimov.arrayset;
 
 import java.util.*;
+import java.util.function.Consumer;
 
 public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
-    private final Comparator<? super T> comparator;
-    private final List<T> data;
+    private final static int GALLOP_RATIO = 16;
 
+    private final Comparator<? super T> comparator;
+    private final T[] data;
+    private final EytzingerIndex<T> index;
+    private final int from;
+    private final int to;
+    private final boolean reversed;
+
+    /**
+     * List view of another list that can be switched to the reverse order
+     *
+     * @param <U> type of elements
+     * @deprecated {@link ArraySet} does not use it anymore, its views are index ranges over one backing array
+     */
+    @Deprecated
     public static class ReversedList<U> extends AbstractList<U> {
         private boolean reversed;
         private final List<U> data;
@@ -29,6 +43,21 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
         }
     }
 
+    /**
+     * Memory layout used to search elements
+     */
+    public enum Layout {
+        /**
+         * Binary search over the sorted array
+         */
+        SORTED,
+        /**
+         * Search over a copy of elements in Eytzinger (breadth-first) order. Uses about twice as much memory
+         * and works faster on large sets.
+         */
+        EYTZINGER
+    }
+
     public ArraySet() {
         this(Collections.emptyList(), null);
     }
@@ -38,18 +67,187 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
     }
 
     public ArraySet(Collection<? extends T> data, Comparator<? super T> comparator) {
+        this(data, comparator, Layout.SORTED);
+    }
+
+    public ArraySet(Collection<? extends T> data, Comparator<? super T> comparator, Layout layout) {
         this.comparator = comparator;
-        Set<T> tmp = new TreeSet<>(comparator);
-        tmp.addAll(data);
-        this.data = new ArrayList<>(tmp);
+        this.data = sorted(data, comparator);
+        this.index = layout == Layout.EYTZINGER ? new EytzingerIndex<>(this.data, comparator) : null;
+        this.from = 0;
+        this.to = this.data.length;
+        this.reversed = false;
+    }
+
+    // array of distinct elements in the order of comparator, first of equal elements is kept.
+    // Nulls are rejected explicitly for the natural order, as a single element is never compared
+    @SuppressWarnings("unchecked")
+    static <T> T[] sorted(Collection<? extends T> data, Comparator<? super T> comparator) {
+        T[] elements = (T[]) data.toArray();
+        if (comparator == null) {
+            for (T element : elements) {
+                Objects.requireNonNull(element);
+            }
+        }
+        if (!(data instanceof SortedSet && Objects.equals(((SortedSet<?>) data).comparator(), comparator))) {
+            int size = unique(elements, comparator);
+            if (size < 0) {
+                Arrays.parallelSort(elements, comparator);
+                size = unique(elements, comparator);
+            }
+            if (size < elements.length) {
+                elements = Arrays.copyOf(elements, size);
+            }
+        }
+        return elements;
+    }
+
+    // removes equal elements of sorted array keeping the first of them, returns new size or -1 if array is not sorted.
+    // In the latter case the array is partially compacted, but first occurrences of elements still go first
+    private static <T> int unique(T[] elements, Comparator<? super T> comparator) {
+        int size = Math.min(elements.length, 1);
+        for (int i = 1; i < elements.length; i++) {
+            int cmp = compare(comparator, elements[size - 1], elements[i]);
+            if (cmp > 0) {
+                return -1;
+            }
+            if (cmp < 0) {
+                elements[size++] = elements[i];
+            }
+        }
+        return size;
     }
 
-    private ArraySet(List<T> data, Comparator<? super T> comparator) {
+    private ArraySet(T[] data, EytzingerIndex<T> index, int from, int to, boolean reversed, Comparator<? super T> comparator) {
         this.comparator = comparator;
         this.data = data;
-        if (data instanceof ReversedList ) {
-            ((ReversedList) data).reverse();
+        this.index = index;
+        this.from = from;
+        this.to = to;
+        this.reversed = reversed;
+    }
+
+    /**
+     * Returns union of two sets ordered by the same comparator, keeping elements of {@code a} on ties.
+     * Works in linear time, or faster if one set is much smaller than the other one.
+     *
+     * @param a   first set
+     * @param b   second set
+     * @param <T> type of elements
+     * @return set of elements contained in any of the sets, in the order of {@code a}
+     * @throws IllegalArgumentException if comparators of the sets differ
+     */
+    public static <T> ArraySet<T> union(ArraySet<T> a, ArraySet<T> b) {
+        return merge(a, b, true, true, true);
+    }
+
+    /**
+     * Returns intersection of two sets ordered by the same comparator, see {@link #union(ArraySet, ArraySet)}
+     *
+     * @param a   first set
+     * @param b   second set
+     * @param <T> type of elements
+     * @return set of elements of {@code a} contained in {@code b}
+     * @throws IllegalArgumentException if comparators of the sets differ
+     */
+    public static <T> ArraySet<T> intersection(ArraySet<T> a, ArraySet<T> b) {
+        return merge(a, b, false, true, false);
+    }
+
+    /**
+     * Returns difference of two sets ordered by the same comparator, see {@link #union(ArraySet, ArraySet)}
+     *
+     * @param a   first set
+     * @param b   second set
+     * @param <T> type of elements
+     * @return set of elements of {@code a} not contained in {@code b}
+     * @throws IllegalArgumentException if comparators of the sets differ
+     */
+    public static <T> ArraySet<T> difference(ArraySet<T> a, ArraySet<T> b) {
+        return merge(a, b, true, false, false);
+    }
+
+    // merges sets keeping elements that are only in a, in both of them or only in b
+    @SuppressWarnings("unchecked")
+    private static <T> ArraySet<T> merge(ArraySet<T> a, ArraySet<T> b, boolean onlyA, boolean both, boolean onlyB) {
+        Comparator<? super T> comparator = a.comparator();
+        if (!Objects.equals(comparator, b.comparator())) {
+            throw new IllegalArgumentException("Sets are ordered by different comparators");
         }
+        int na = a.size(), nb = b.size();
+        // with sets of close sizes runs are short and stepping over them is cheaper than searching
+        boolean gallop = Math.max(na, nb) / GALLOP_RATIO > Math.min(na, nb);
+        T[] result = (T[]) new Object[(onlyA ? na : 0) + (onlyB ? nb : 0) + (both && !onlyA && !onlyB ? Math.min(na, nb) : 0)];
+        int i = 0, j = 0, n = 0;
+        while (i < na && j < nb) {
+            int cmp = compare(comparator, a.get(i), b.get(j));
+            if (cmp < 0) {
+                int end = gallop ? a.skip(i + 1, b.get(j), comparator) : i + 1;
+                n = onlyA ? a.copy(i, end, result, n) : n;
+                i = end;
+            } else if (cmp > 0) {
+                int end = gallop ? b.skip(j + 1, a.get(i), comparator) : j + 1;
+                n = onlyB ? b.copy(j, end, result, n) : n;
+                j = end;
+            } else {
+                if (both) {
+                    result[n++] = a.get(i);
+                }
+                i++;
+                j++;
+            }
+        }
+        n = onlyA ? a.copy(i, na, result, n) : n;
+        n = onlyB ? b.copy(j, nb, result, n) : n;
+        T[] data = n < result.length ? Arrays.copyOf(result, n) : result;
+        EytzingerIndex<T> index = a.index != null ? new EytzingerIndex<>(data, comparator) : null;
+        return new ArraySet<>(data, index, 0, n, false, comparator);
+    }
+
+    // i-th element of the set in its order
+    private T get(int i) {
+        return reversed ? data[to - 1 - i] : data[from + i];
+    }
+
+    // first position not less than i of the element that is not less than t, found by exponential search
+    private int skip(int i, T t, Comparator<? super T> comparator) {
+        int lo = i, step = 1;
+        while (i < size() && compare(comparator, get(i), t) < 0) {
+            lo = i + 1;
+            i += step;
+            step *= 2;
+        }
+        int hi = Math.min(i, size());
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compare(comparator, get(mid), t) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    // copies elements at positions [l, r) to result starting from n, returns the position after them
+    private int copy(int l, int r, T[] result, int n) {
+        if (reversed) {
+            for (int i = l; i < r; i++) {
+                result[n++] = get(i);
+            }
+            return n;
+        }
+        System.arraycopy(data, from + l, result, n, r - l);
+        return n + r - l;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean containsAll(Collection<?> c) {
+        if (c instanceof ArraySet && Objects.equals(comparator(), ((ArraySet<?>) c).comparator())) {
+            return difference((ArraySet<T>) c, this).isEmpty();
+        }
+        return super.containsAll(c);
     }
 
     private void checkNonEmpty() {
@@ -59,24 +257,30 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
     }
 
     private boolean validInd(int ind) {
-        return 0 <= ind && ind < size();
+        return from <= ind && ind < to;
     }
 
-    private int getInd(T t, int found, int notFound) {
-        int ind = Collections.binarySearch(data, t, comparator);
-        if (ind < 0) {
-            ind = -ind - 1;
-            return validInd(ind + notFound) ? ind + notFound : -1;
+    // first index in data of the element that is greater than t (or equal to it, if not strict) in the order of data
+    private int bound(T t, boolean strict) {
+        if (index != null) {
+            return Math.max(from, Math.min(to, index.bound(t, strict)));
         }
-        return validInd(ind + found) ? ind + found : -1;
+        int ind = Arrays.binarySearch(data, from, to, t, comparator);
+        return ind < 0 ? -ind - 1 : strict ? ind + 1 : ind;
+    }
+
+    // index in data of the element before (shift = -1) or at (shift = 0) the bound, -1 if it is out of the set
+    private int getInd(T t, boolean strict, int shift) {
+        int ind = bound(t, strict) + shift;
+        return validInd(ind) ? ind : -1;
     }
 
     private T getElem(int ind) {
-        return validInd(ind) ? data.get(ind) : null;
+        return ind == -1 ? null : data[ind];
     }
 
     private int getLowerInd(T t) {
-        return getInd(t, -1, -1);
+        return reversed ? getInd(t, true, 0) : getInd(t, false, -1);
     }
 
     @Override
@@ -85,7 +289,7 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
     }
 
     private int getFloorInd(T t) {
-        return getInd(t, 0, -1);
+        return reversed ? getInd(t, false, 0) : getInd(t, true, -1);
     }
 
     @Override
@@ -94,7 +298,7 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
     }
 
     private int getCeilingInd(T t) {
-        return getInd(t, 0, 0);
+        return reversed ? getInd(t, true, -1) : getInd(t, false, 0);
     }
 
     @Override
@@ -103,7 +307,7 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
     }
 
     private int getHigherInd(T t) {
-        return getInd(t, 1, 0);
+        return reversed ? getInd(t, false, -1) : getInd(t, true, 0);
     }
 
     @Override
@@ -112,8 +316,20 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public boolean contains(Object o) {
-        return Collections.binarySearch(data, (T) o, comparator) >= 0;
+        T t = (T) o;
+        int ind = bound(t, false);
+        return ind < to && compare(data[ind], t) == 0;
+    }
+
+    private int compare(T a, T b) {
+        return compare(comparator, a, b);
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> int compare(Comparator<? super T> comparator, T a, T b) {
+        return comparator == null ? ((Comparable<? super T>) a).compareTo(b) : comparator.compare(a, b);
     }
 
     @Override
@@ -128,12 +344,109 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
 
     @Override
     public Iterator<T> iterator() {
-        return Collections.unmodifiableList(data).iterator();
+        return new Iterator<>() {
+            private int pos = reversed ? to - 1 : from;
+
+            @Override
+            public boolean hasNext() {
+                return reversed ? pos >= from : pos < to;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return reversed ? data[pos--] : data[pos++];
+            }
+        };
+    }
+
+    @Override
+    public Spliterator<T> spliterator() {
+        return new ArraySpliterator<>(data, from, to, reversed, comparator());
+    }
+
+    private static class ArraySpliterator<T> implements Spliterator<T> {
+        private final static int CHARACTERISTICS = SIZED | SUBSIZED | ORDERED | SORTED | DISTINCT | IMMUTABLE;
+
+        private final T[] data;
+        private final boolean reversed;
+        private final Comparator<? super T> comparator;
+        // remaining elements are data[lo..hi), consumed from hi if reversed
+        private int lo;
+        private int hi;
+
+        private ArraySpliterator(T[] data, int lo, int hi, boolean reversed, Comparator<? super T> comparator) {
+            this.data = data;
+            this.lo = lo;
+            this.hi = hi;
+            this.reversed = reversed;
+            this.comparator = comparator;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            Objects.requireNonNull(action);
+            if (lo >= hi) {
+                return false;
+            }
+            action.accept(reversed ? data[--hi] : data[lo++]);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            Objects.requireNonNull(action);
+            int l = lo, h = hi;
+            lo = hi;
+            if (reversed) {
+                for (int i = h - 1; i >= l; i--) {
+                    action.accept(data[i]);
+                }
+            } else {
+                for (int i = l; i < h; i++) {
+                    action.accept(data[i]);
+                }
+            }
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            int mid = (lo + hi) >>> 1;
+            if (mid == lo) {
+                return null;
+            }
+            // the returned part precedes the remaining one in the order of the set
+            if (reversed) {
+                Spliterator<T> prefix = new ArraySpliterator<>(data, mid, hi, true, comparator);
+                hi = mid;
+                return prefix;
+            }
+            Spliterator<T> prefix = new ArraySpliterator<>(data, lo, mid, false, comparator);
+            lo = mid;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return hi - lo;
+        }
+
+        @Override
+        public int characteristics() {
+            return CHARACTERISTICS;
+        }
+
+        @Override
+        public Comparator<? super T> getComparator() {
+            return comparator;
+        }
     }
 
     @Override
     public NavigableSet<T> descendingSet() {
-        return new ArraySet<>(new ReversedList<>(data), Collections.reverseOrder(comparator));
+        return new ArraySet<>(data, index, from, to, !reversed, comparator);
     }
 
     @Override
@@ -141,8 +454,14 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
         return descendingSet().iterator();
     }
 
+    private NavigableSet<T> view(int l, int r) {
+        return new ArraySet<>(data, index, l, Math.max(l, r), reversed, comparator);
+    }
+
     @Override
+    @SuppressWarnings("unchecked")
     public NavigableSet<T> subSet(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
+        Comparator<? super T> comparator = comparator();
         if (comparator == null) {
             if (fromElement instanceof Comparable && toElement instanceof Comparable) {
                 if (((Comparable) fromElement).compareTo(toElement) > 0) {
@@ -156,25 +475,29 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
                 throw new IllegalArgumentException("fromElement >= toElement");
             }
         }
-        NavigableSet<T> pref = headSet(toElement, toInclusive);
-        return pref.tailSet(fromElement, fromInclusive);
+        if (reversed) {
+            return view(bound(toElement, !toInclusive), bound(fromElement, fromInclusive));
+        }
+        return view(bound(fromElement, !fromInclusive), bound(toElement, toInclusive));
     }
 
     @Override
     public NavigableSet<T> headSet(T toElement, boolean inclusive) {
-        int bound = inclusive ? getFloorInd(toElement) : getLowerInd(toElement);
-        return new ArraySet<>((bound == -1 ? Collections.emptyList() : data.subList(0, bound + 1)), comparator);
+        return reversed
+                ? view(bound(toElement, !inclusive), to)
+                : view(from, bound(toElement, inclusive));
     }
 
     @Override
     public NavigableSet<T> tailSet(T fromElement, boolean inclusive) {
-        int bound = inclusive ? getCeilingInd(fromElement) : getHigherInd(fromElement);
-        return new ArraySet<>((bound == -1 ? Collections.emptyList() : data.subList(bound, size())), comparator);
+        return reversed
+                ? view(from, bound(fromElement, inclusive))
+                : view(bound(fromElement, !inclusive), to);
     }
 
     @Override
     public Comparator<? super T> comparator() {
-        return comparator;
+        return reversed ? Collections.reverseOrder(comparator) : comparator;
     }
 
     @Override
@@ -195,17 +518,17 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
     @Override
     public T first() {
         checkNonEmpty();
-        return data.get(0);
+        return data[reversed ? to - 1 : from];
     }
 
     @Override
     public T last() {
         checkNonEmpty();
-        return data.get(size() - 1);
+        return data[reversed ? from : to - 1];
     }
 
     @Override
     public int size() {
-        return data.size();
+        return to - from;
     }
 }
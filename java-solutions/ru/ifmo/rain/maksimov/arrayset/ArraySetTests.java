@@ -0,0 +1,142 @@
+package ru.ifmo.rain.maksimov.arrayset;
+
+import org.junit.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class ArraySetTests {
+    private final Random random = new Random(1012);
+
+    private List<Integer> randomValues(int size, int bound) {
+        final List<Integer> values = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            values.add(random.nextInt(bound));
+        }
+        return values;
+    }
+
+    // elements of TreeSet of a after retainAll or removeAll of b, or after addAll of b if retain is null
+    private static <T> List<T> expected(SortedSet<T> a, SortedSet<T> b, Boolean retain) {
+        final TreeSet<T> result = new TreeSet<>(a.comparator());
+        result.addAll(a);
+        if (retain == null) {
+            result.addAll(b);
+        } else if (retain) {
+            result.retainAll(b);
+        } else {
+            result.removeAll(b);
+        }
+        return new ArrayList<>(result);
+    }
+
+    private void checkAlgebra(ArraySet<Integer> a, ArraySet<Integer> b, String message) {
+        assertEquals(message, expected(a, b, null), new ArrayList<>(ArraySet.union(a, b)));
+        assertEquals(message, expected(a, b, true), new ArrayList<>(ArraySet.intersection(a, b)));
+        assertEquals(message, expected(a, b, false), new ArrayList<>(ArraySet.difference(a, b)));
+        assertEquals(message, expected(a, b, false).isEmpty(), b.containsAll(a));
+    }
+
+    @Test
+    public void setAlgebraMatchesTreeSet() {
+        final int[] sizes = {0, 1, 10, 100, 1000, 20_000};
+        for (final int na : sizes) {
+            for (final int nb : sizes) {
+                final int bound = Math.max(na, nb) * 2 + 10;
+                for (final Comparator<Integer> comparator : Arrays.<Comparator<Integer>>asList(null, Comparator.reverseOrder())) {
+                    for (final ArraySet.Layout layout : ArraySet.Layout.values()) {
+                        final ArraySet<Integer> a = new ArraySet<>(randomValues(na, bound), comparator, layout);
+                        final ArraySet<Integer> b = new ArraySet<>(randomValues(nb, bound), comparator, layout);
+                        checkAlgebra(a, b, "sizes " + na + " and " + nb + ", " + layout);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void setAlgebraOfViews() {
+        final ArraySet<Integer> a = new ArraySet<>(randomValues(3000, 5000));
+        final ArraySet<Integer> b = new ArraySet<>(randomValues(200, 5000));
+        checkAlgebra((ArraySet<Integer>) a.descendingSet(), (ArraySet<Integer>) b.descendingSet(), "descending");
+        checkAlgebra((ArraySet<Integer>) a.subSet(1000, 4000), (ArraySet<Integer>) b.tailSet(2000), "sub and tail");
+        checkAlgebra((ArraySet<Integer>) a.headSet(3000, false).descendingSet(),
+                (ArraySet<Integer>) b.descendingSet().headSet(500, true), "descending head");
+    }
+
+    @Test
+    public void firstSetWinsOnTies() {
+        final ArraySet<String> a = new ArraySet<>(List.of("a", "B", "c"), String.CASE_INSENSITIVE_ORDER);
+        final ArraySet<String> b = new ArraySet<>(List.of("A", "b", "D"), String.CASE_INSENSITIVE_ORDER);
+        assertEquals(List.of("a", "B", "c", "D"), new ArrayList<>(ArraySet.union(a, b)));
+        assertEquals(List.of("a", "B"), new ArrayList<>(ArraySet.intersection(a, b)));
+        assertEquals(List.of("c"), new ArrayList<>(ArraySet.difference(a, b)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void differentComparatorsAreRejected() {
+        ArraySet.union(new ArraySet<>(List.of(1, 2)), new ArraySet<>(List.of(1, 2), Comparator.reverseOrder()));
+    }
+
+    // traverses spliterator splitting it recursively, prefixes go first, checks sizes of every split
+    private static <T> void splitAndTraverse(Spliterator<T> spliterator, List<T> result, int depth) {
+        final long size = spliterator.estimateSize();
+        final Spliterator<T> prefix = depth < 20 ? spliterator.trySplit() : null;
+        if (prefix == null) {
+            final int before = result.size();
+            if (depth % 2 == 0) {
+                spliterator.forEachRemaining(result::add);
+            } else {
+                while (spliterator.tryAdvance(result::add)) {
+                }
+            }
+            assertEquals(size, result.size() - before);
+            assertEquals(0, spliterator.estimateSize());
+            assertFalse(spliterator.tryAdvance(x -> fail("exhausted spliterator advanced")));
+            return;
+        }
+        assertEquals(size, prefix.estimateSize() + spliterator.estimateSize());
+        assertTrue(prefix.estimateSize() > 0 && spliterator.estimateSize() > 0);
+        splitAndTraverse(prefix, result, depth + 1);
+        splitAndTraverse(spliterator, result, depth + 1);
+    }
+
+    private static void checkSpliterator(NavigableSet<Integer> set, String message) {
+        final Spliterator<Integer> spliterator = set.spliterator();
+        final int expected = Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.ORDERED
+                | Spliterator.SORTED | Spliterator.DISTINCT | Spliterator.IMMUTABLE;
+        assertEquals(message, expected, spliterator.characteristics() & expected);
+        assertEquals(message, set.comparator(), spliterator.getComparator());
+        assertEquals(message, set.size(), spliterator.getExactSizeIfKnown());
+        final List<Integer> traversed = new ArrayList<>();
+        splitAndTraverse(spliterator, traversed, 0);
+        assertEquals(message, new ArrayList<>(set), traversed);
+        assertEquals(message, new ArrayList<>(set), set.parallelStream().collect(Collectors.toList()));
+    }
+
+    @Test
+    public void spliteratorCoversSetInOrder() {
+        for (final int size : new int[]{0, 1, 2, 3, 100, 10_000}) {
+            final ArraySet<Integer> set = new ArraySet<>(randomValues(size, size * 3 + 1));
+            checkSpliterator(set, "size " + size);
+            checkSpliterator(set.descendingSet(), "descending, size " + size);
+            checkSpliterator(set.subSet(size / 3, true, size * 2, false), "sub set, size " + size);
+            checkSpliterator(set.descendingSet().tailSet(size, true), "descending tail set, size " + size);
+            checkSpliterator(new ArraySet<>(set, Comparator.reverseOrder()), "reverse order, size " + size);
+        }
+    }
+
+    @Test
+    public void splitsAreBalanced() {
+        final ArraySet<Integer> set = new ArraySet<>(randomValues(1001, 100_000));
+        final Spliterator<Integer> spliterator = set.spliterator();
+        final long size = spliterator.estimateSize();
+        final Spliterator<Integer> prefix = spliterator.trySplit();
+        assertNotNull(prefix);
+        assertTrue(Math.abs(prefix.estimateSize() - spliterator.estimateSize()) <= 1);
+        assertEquals(size, prefix.estimateSize() + spliterator.estimateSize());
+        assertNull(new ArraySet<>(List.of(1)).spliterator().trySplit());
+    }
+}
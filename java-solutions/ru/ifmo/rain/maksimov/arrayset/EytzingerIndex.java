@@ -0,0 +1,67 @@
+package ru.ifmo.rain.maksimov.arrayset;
+
+import java.util.Comparator;
+
+/**
+ * Search index over a sorted array with elements placed in Eytzinger (breadth-first) order
+ * of the implicit binary search tree. First levels of the tree share few cache lines,
+ * so a search touches less memory than a binary search over the sorted array.
+ *
+ * @param <T> type of elements
+ */
+class EytzingerIndex<T> {
+    private final Comparator<? super T> comparator;
+    private final Object[] tree;
+    private final int[] rank;
+    private final int size;
+
+    EytzingerIndex(T[] sorted, Comparator<? super T> comparator) {
+        this.comparator = comparator;
+        size = sorted.length;
+        tree = new Object[size + 1];
+        rank = new int[size + 1];
+        fill(sorted, 1, 0);
+        rank[0] = size;
+    }
+
+    // places sorted elements starting from i into the subtree of node k, returns the next element index
+    private int fill(T[] sorted, int k, int i) {
+        if (k <= size) {
+            i = fill(sorted, 2 * k, i);
+            tree[k] = sorted[i];
+            rank[k] = i++;
+            i = fill(sorted, 2 * k + 1, i);
+        }
+        return i;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int compare(Object a, T b) {
+        return comparator == null ? ((Comparable<? super T>) a).compareTo(b) : comparator.compare((T) a, b);
+    }
+
+    /**
+     * Returns index in the sorted array of the first element greater than {@code t},
+     * or equal to it if not {@code strict}
+     *
+     * @param t      element to search
+     * @param strict whether equal element should be skipped
+     * @return index in the sorted array or its length if there is no such element
+     */
+    int bound(T t, boolean strict) {
+        int k = 1;
+        // a branch rather than a conditional move lets the processor speculatively load the next level
+        if (strict) {
+            while (k <= size) {
+                k = compare(tree[k], t) <= 0 ? 2 * k + 1 : 2 * k;
+            }
+        } else {
+            while (k <= size) {
+                k = compare(tree[k], t) < 0 ? 2 * k + 1 : 2 * k;
+            }
+        }
+        // drop the right turns made after the last left one, k becomes the node where it was made
+        k >>>= Integer.numberOfTrailingZeros(~k) + 1;
+        return rank[k];
+    }
+}
@@ -0,0 +1,282 @@
+package ru.ifmo.rain.maksimov.arrayset;
+
+import java.util.*;
+
+/**
+ * Immutable {@link NavigableSet} of {@code int} values in natural order, backed by a sorted {@code int[]}.
+ * Views returned by {@link #headSet}, {@link #tailSet}, {@link #subSet} and {@link #descendingSet}
+ * share the backing array with this set.
+ * Methods with {@code Int} in the name work with primitive values and do not box them.
+ */
+public class IntArraySet extends AbstractSet<Integer> implements NavigableSet<Integer> {
+    private final int[] data;
+    private final SortedKeyRange range;
+
+    public IntArraySet() {
+        this(new int[0], false);
+    }
+
+    public IntArraySet(int[] data) {
+        this(sorted(data.clone()), false);
+    }
+
+    public IntArraySet(Collection<? extends Integer> data) {
+        this(sorted(data.stream().mapToInt(Integer::intValue).toArray()), false);
+    }
+
+    private IntArraySet(int[] data, boolean descending) {
+        this(data, new SortedKeyRange(keys(data), 0, data.length, descending));
+    }
+
+    private IntArraySet(int[] data, SortedKeyRange range) {
+        this.data = data;
+        this.range = range;
+    }
+
+    // keys of the array, they are searched for int values only
+    private static SortedKeyRange.Keys keys(int[] data) {
+        return new SortedKeyRange.Keys() {
+            @Override
+            public long key(long index) {
+                return data[(int) index];
+            }
+
+            @Override
+            public long bound(long from, long to, long e, boolean strict) {
+                return SortedKeyRange.searchBound(Arrays.binarySearch(data, (int) from, (int) to, (int) e), strict);
+            }
+        };
+    }
+
+    private static int[] sorted(int[] data) {
+        Arrays.sort(data);
+        int size = 0;
+        for (int i = 0; i < data.length; i++) {
+            if (i == 0 || data[i] != data[size - 1]) {
+                data[size++] = data[i];
+            }
+        }
+        return size == data.length ? data : Arrays.copyOf(data, size);
+    }
+
+    private Integer getElem(long ind) {
+        return ind == -1 ? null : data[(int) ind];
+    }
+
+    private int getInt(long ind) {
+        if (ind == -1) {
+            throw new NoSuchElementException();
+        }
+        return data[(int) ind];
+    }
+
+    /**
+     * Returns whether this set contains given value
+     *
+     * @param e value to look for
+     * @return {@code true} if the value is in this set
+     */
+    public boolean containsInt(int e) {
+        return range.contains(e);
+    }
+
+    /**
+     * Same as {@link #lower(Integer)}, but throws {@link NoSuchElementException} if there is no such element
+     *
+     * @param e value to match
+     * @return the greatest element strictly less than {@code e} in the order of this set
+     */
+    public int lowerInt(int e) {
+        return getInt(range.lowerIndex(e));
+    }
+
+    /**
+     * Same as {@link #floor(Integer)}, but throws {@link NoSuchElementException} if there is no such element
+     *
+     * @param e value to match
+     * @return the greatest element less than or equal to {@code e} in the order of this set
+     */
+    public int floorInt(int e) {
+        return getInt(range.floorIndex(e));
+    }
+
+    /**
+     * Same as {@link #ceiling(Integer)}, but throws {@link NoSuchElementException} if there is no such element
+     *
+     * @param e value to match
+     * @return the least element greater than or equal to {@code e} in the order of this set
+     */
+    public int ceilingInt(int e) {
+        return getInt(range.ceilingIndex(e));
+    }
+
+    /**
+     * Same as {@link #higher(Integer)}, but throws {@link NoSuchElementException} if there is no such element
+     *
+     * @param e value to match
+     * @return the least element strictly greater than {@code e} in the order of this set
+     */
+    public int higherInt(int e) {
+        return getInt(range.higherIndex(e));
+    }
+
+    /**
+     * Returns the first element of this set
+     *
+     * @return the first element
+     * @throws NoSuchElementException if this set is empty
+     */
+    public int firstInt() {
+        checkNonEmpty();
+        return data[(int) range.firstIndex()];
+    }
+
+    /**
+     * Returns the last element of this set
+     *
+     * @return the last element
+     * @throws NoSuchElementException if this set is empty
+     */
+    public int lastInt() {
+        checkNonEmpty();
+        return data[(int) range.lastIndex()];
+    }
+
+    /**
+     * Returns elements of this set in its order
+     *
+     * @return new array of the elements
+     */
+    public int[] toIntArray() {
+        int[] res = Arrays.copyOfRange(data, (int) range.from, (int) range.to);
+        if (range.descending) {
+            for (int i = 0, j = res.length - 1; i < j; i++, j--) {
+                int tmp = res[i];
+                res[i] = res[j];
+                res[j] = tmp;
+            }
+        }
+        return res;
+    }
+
+    private void checkNonEmpty() {
+        if (isEmpty()) {
+            throw new NoSuchElementException("Set is empty, can't get a element");
+        }
+    }
+
+    @Override
+    public Integer lower(Integer e) {
+        return getElem(range.lowerIndex(e));
+    }
+
+    @Override
+    public Integer floor(Integer e) {
+        return getElem(range.floorIndex(e));
+    }
+
+    @Override
+    public Integer ceiling(Integer e) {
+        return getElem(range.ceilingIndex(e));
+    }
+
+    @Override
+    public Integer higher(Integer e) {
+        return getElem(range.higherIndex(e));
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Integer && containsInt((Integer) o);
+    }
+
+    @Override
+    public Integer pollFirst() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Integer pollLast() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt iterator() {
+        return new PrimitiveIterator.OfInt() {
+            private int pos = (int) range.firstIndex();
+
+            @Override
+            public boolean hasNext() {
+                return range.descending ? pos >= range.from : pos < range.to;
+            }
+
+            @Override
+            public int nextInt() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return range.descending ? data[pos--] : data[pos++];
+            }
+        };
+    }
+
+    @Override
+    public IntArraySet descendingSet() {
+        return new IntArraySet(data, range.reversed());
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt descendingIterator() {
+        return descendingSet().iterator();
+    }
+
+    @Override
+    public IntArraySet subSet(Integer fromElement, boolean fromInclusive, Integer toElement, boolean toInclusive) {
+        return new IntArraySet(data, range.subRange(fromElement, fromInclusive, toElement, toInclusive));
+    }
+
+    @Override
+    public IntArraySet headSet(Integer toElement, boolean inclusive) {
+        return new IntArraySet(data, range.headRange(toElement, inclusive));
+    }
+
+    @Override
+    public IntArraySet tailSet(Integer fromElement, boolean inclusive) {
+        return new IntArraySet(data, range.tailRange(fromElement, inclusive));
+    }
+
+    @Override
+    public Comparator<? super Integer> comparator() {
+        return range.descending ? Collections.reverseOrder() : null;
+    }
+
+    @Override
+    public IntArraySet subSet(Integer fromElement, Integer toElement) {
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public IntArraySet headSet(Integer toElement) {
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public IntArraySet tailSet(Integer fromElement) {
+        return tailSet(fromElement, true);
+    }
+
+    @Override
+    public Integer first() {
+        return firstInt();
+    }
+
+    @Override
+    public Integer last() {
+        return lastInt();
+    }
+
+    @Override
+    public int size() {
+        return (int) range.size();
+    }
+}
@@ -0,0 +1,282 @@
+package ru.ifmo.rain.maksimov.arrayset;
+
+import java.util.*;
+
+/**
+ * Immutable {@link NavigableSet} of {@code long} values in natural order, backed by a sorted {@code long[]}.
+ * Views returned by {@link #headSet}, {@link #tailSet}, {@link #subSet} and {@link #descendingSet}
+ * share the backing array with this set.
+ * Methods with {@code Long} in the name work with primitive values and do not box them.
+ */
+public class LongArraySet extends AbstractSet<Long> implements NavigableSet<Long> {
+    private final long[] data;
+    private final SortedKeyRange range;
+
+    public LongArraySet() {
+        this(new long[0], false);
+    }
+
+    public LongArraySet(long[] data) {
+        this(sorted(data.clone()), false);
+    }
+
+    public LongArraySet(Collection<? extends Long> data) {
+        this(sorted(data.stream().mapToLong(Long::longValue).toArray()), false);
+    }
+
+    private LongArraySet(long[] data, boolean descending) {
+        this(data, new SortedKeyRange(keys(data), 0, data.length, descending));
+    }
+
+    private LongArraySet(long[] data, SortedKeyRange range) {
+        this.data = data;
+        this.range = range;
+    }
+
+    // keys of the array
+    private static SortedKeyRange.Keys keys(long[] data) {
+        return new SortedKeyRange.Keys() {
+            @Override
+            public long key(long index) {
+                return data[(int) index];
+            }
+
+            @Override
+            public long bound(long from, long to, long e, boolean strict) {
+                return SortedKeyRange.searchBound(Arrays.binarySearch(data, (int) from, (int) to, e), strict);
+            }
+        };
+    }
+
+    private static long[] sorted(long[] data) {
+        Arrays.sort(data);
+        int size = 0;
+        for (int i = 0; i < data.length; i++) {
+            if (i == 0 || data[i] != data[size - 1]) {
+                data[size++] = data[i];
+            }
+        }
+        return size == data.length ? data : Arrays.copyOf(data, size);
+    }
+
+    private Long getElem(long ind) {
+        return ind == -1 ? null : data[(int) ind];
+    }
+
+    private long getLong(long ind) {
+        if (ind == -1) {
+            throw new NoSuchElementException();
+        }
+        return data[(int) ind];
+    }
+
+    /**
+     * Returns whether this set contains given value
+     *
+     * @param e value to look for
+     * @return {@code true} if the value is in this set
+     */
+    public boolean containsLong(long e) {
+        return range.contains(e);
+    }
+
+    /**
+     * Same as {@link #lower(Long)}, but throws {@link NoSuchElementException} if there is no such element
+     *
+     * @param e value to match
+     * @return the greatest element strictly less than {@code e} in the order of this set
+     */
+    public long lowerLong(long e) {
+        return getLong(range.lowerIndex(e));
+    }
+
+    /**
+     * Same as {@link #floor(Long)}, but throws {@link NoSuchElementException} if there is no such element
+     *
+     * @param e value to match
+     * @return the greatest element less than or equal to {@code e} in the order of this set
+     */
+    public long floorLong(long e) {
+        return getLong(range.floorIndex(e));
+    }
+
+    /**
+     * Same as {@link #ceiling(Long)}, but throws {@link NoSuchElementException} if there is no such element
+     *
+     * @param e value to match
+     * @return the least element greater than or equal to {@code e} in the order of this set
+     */
+    public long ceilingLong(long e) {
+        return getLong(range.ceilingIndex(e));
+    }
+
+    /**
+     * Same as {@link #higher(Long)}, but throws {@link NoSuchElementException} if there is no such element
+     *
+     * @param e value to match
+     * @return the least element strictly greater than {@code e} in the order of this set
+     */
+    public long higherLong(long e) {
+        return getLong(range.higherIndex(e));
+    }
+
+    /**
+     * Returns the first element of this set
+     *
+     * @return the first element
+     * @throws NoSuchElementException if this set is empty
+     */
+    public long firstLong() {
+        checkNonEmpty();
+        return data[(int) range.firstIndex()];
+    }
+
+    /**
+     * Returns the last element of this set
+     *
+     * @return the last element
+     * @throws NoSuchElementException if this set is empty
+     */
+    public long lastLong() {
+        checkNonEmpty();
+        return data[(int) range.lastIndex()];
+    }
+
+    /**
+     * Returns elements of this set in its order
+     *
+     * @return new array of the elements
+     */
+    public long[] toLongArray() {
+        long[] res = Arrays.copyOfRange(data, (int) range.from, (int) range.to);
+        if (range.descending) {
+            for (int i = 0, j = res.length - 1; i < j; i++, j--) {
+                long tmp = res[i];
+                res[i] = res[j];
+                res[j] = tmp;
+            }
+        }
+        return res;
+    }
+
+    private void checkNonEmpty() {
+        if (isEmpty()) {
+            throw new NoSuchElementException("Set is empty, can't get a element");
+        }
+    }
+
+    @Override
+    public Long lower(Long e) {
+        return getElem(range.lowerIndex(e));
+    }
+
+    @Override
+    public Long floor(Long e) {
+        return getElem(range.floorIndex(e));
+    }
+
+    @Override
+    public Long ceiling(Long e) {
+        return getElem(range.ceilingIndex(e));
+    }
+
+    @Override
+    public Long higher(Long e) {
+        return getElem(range.higherIndex(e));
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Long && containsLong((Long) o);
+    }
+
+    @Override
+    public Long pollFirst() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Long pollLast() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public PrimitiveIterator.OfLong iterator() {
+        return new PrimitiveIterator.OfLong() {
+            private int pos = (int) range.firstIndex();
+
+            @Override
+            public boolean hasNext() {
+                return range.descending ? pos >= range.from : pos < range.to;
+            }
+
+            @Override
+            public long nextLong() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return range.descending ? data[pos--] : data[pos++];
+            }
+        };
+    }
+
+    @Override
+    public LongArraySet descendingSet() {
+        return new LongArraySet(data, range.reversed());
+    }
+
+    @Override
+    public PrimitiveIterator.OfLong descendingIterator() {
+        return descendingSet().iterator();
+    }
+
+    @Override
+    public LongArraySet subSet(Long fromElement, boolean fromInclusive, Long toElement, boolean toInclusive) {
+        return new LongArraySet(data, range.subRange(fromElement, fromInclusive, toElement, toInclusive));
+    }
+
+    @Override
+    public LongArraySet headSet(Long toElement, boolean inclusive) {
+        return new LongArraySet(data, range.headRange(toElement, inclusive));
+    }
+
+    @Override
+    public LongArraySet tailSet(Long fromElement, boolean inclusive) {
+        return new LongArraySet(data, range.tailRange(fromElement, inclusive));
+    }
+
+    @Override
+    public Comparator<? super Long> comparator() {
+        return range.descending ? Collections.reverseOrder() : null;
+    }
+
+    @Override
+    public LongArraySet subSet(Long fromElement, Long toElement) {
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public LongArraySet headSet(Long toElement) {
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public LongArraySet tailSet(Long fromElement) {
+        return tailSet(fromElement, true);
+    }
+
+    @Override
+    public Long first() {
+        return firstLong();
+    }
+
+    @Override
+    public Long last() {
+        return lastLong();
+    }
+
+    @Override
+    public int size() {
+        return (int) range.size();
+    }
+}
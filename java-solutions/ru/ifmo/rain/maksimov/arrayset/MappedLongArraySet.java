@@ -0,0 +1,360 @@
+package ru.ifmo.rain.maksimov.arrayset;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.LongStream;
+
+/**
+ * Immutable {@link NavigableSet} of {@code long} values in natural order, backed by a sorted array
+ * in a memory-mapped file written by {@link #write(Path, LongStream)}.
+ * Opening a file maps it without reading, keys are paged in by the operating system on access
+ * and mappings of the same file in different processes share the page cache.
+ * Views returned by {@link #headSet}, {@link #tailSet}, {@link #subSet} and {@link #descendingSet}
+ * share the mapping with this set.
+ * Methods with {@code Long} in the name work with primitive values and do not box them.
+ * <p>
+ * File format: magic, version, number of keys and the keys, all little-endian.
+ */
+public class MappedLongArraySet extends AbstractSet<Long> implements NavigableSet<Long> {
+    private final static int MAGIC = 0x4c534554;
+    private final static int VERSION = 1;
+    private final static int HEADER_SIZE = 16;
+    private final static int CHUNK_SHIFT = 27;
+    private final static long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+    private final static int BUFFER_SIZE = 1 << 16;
+
+    private final LongBuffer[] chunks;
+    private final SortedKeyRange range;
+
+    private MappedLongArraySet(LongBuffer[] chunks, long count) {
+        this.chunks = chunks;
+        this.range = new SortedKeyRange(keys(chunks), 0, count, false);
+    }
+
+    private MappedLongArraySet(LongBuffer[] chunks, SortedKeyRange range) {
+        this.chunks = chunks;
+        this.range = range;
+    }
+
+    /**
+     * Maps set from the file. The file should not be modified while the set is used
+     *
+     * @param file file written by {@link #write(Path, LongStream)}
+     * @return set of keys in the file
+     * @throws IOException if the file can not be mapped or has wrong format
+     */
+    public static MappedLongArraySet open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(HEADER_SIZE, channel.size()))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (header.limit() < HEADER_SIZE || header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Unsupported file format of " + file);
+            }
+            final long count = header.getLong();
+            if (count < 0 || channel.size() != HEADER_SIZE + count * Long.BYTES) {
+                throw new IOException("Unexpected size of " + file);
+            }
+            LongBuffer[] chunks = new LongBuffer[(int) ((count + CHUNK_MASK) >>> CHUNK_SHIFT)];
+            for (int i = 0; i < chunks.length; i++) {
+                long start = (long) i << CHUNK_SHIFT;
+                long length = Math.min(CHUNK_MASK + 1, count - start);
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + start * Long.BYTES, length * Long.BYTES)
+                        .order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+            }
+            return new MappedLongArraySet(chunks, count);
+        }
+    }
+
+    /**
+     * Atomically replaces file with keys of the stream. Equal keys are written once
+     *
+     * @param file   file to write
+     * @param sorted keys in ascending order
+     * @return number of written keys
+     * @throws IOException              if an error occurred while writing the file
+     * @throws IllegalArgumentException if keys are not sorted
+     */
+    public static long write(Path file, LongStream sorted) throws IOException {
+        final Path dir = file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        final Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try {
+            long count = 0;
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                buffer.putInt(MAGIC).putInt(VERSION).putLong(0);
+                long prev = 0;
+                for (PrimitiveIterator.OfLong it = sorted.iterator(); it.hasNext(); ) {
+                    long e = it.nextLong();
+                    if (count > 0 && e <= prev) {
+                        if (e == prev) {
+                            continue;
+                        }
+                        throw new IllegalArgumentException("Keys are not sorted: " + e + " goes after " + prev);
+                    }
+                    if (!buffer.hasRemaining()) {
+                        flush(channel, buffer);
+                    }
+                    buffer.putLong(e);
+                    prev = e;
+                    count++;
+                }
+                flush(channel, buffer);
+                buffer.putLong(count).flip();
+                channel.write(buffer, HEADER_SIZE - Long.BYTES);
+            }
+            try {
+                Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return count;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static long get(LongBuffer[] chunks, long ind) {
+        return chunks[(int) (ind >>> CHUNK_SHIFT)].get((int) (ind & CHUNK_MASK));
+    }
+
+    // keys of the chunks, searched with the default loop of Keys
+    private static SortedKeyRange.Keys keys(LongBuffer[] chunks) {
+        return index -> get(chunks, index);
+    }
+
+    private long get(long ind) {
+        return get(chunks, ind);
+    }
+
+    private Long getElem(long ind) {
+        return ind == -1 ? null : get(ind);
+    }
+
+    private long getLong(long ind) {
+        if (ind == -1) {
+            throw new NoSuchElementException();
+        }
+        return get(ind);
+    }
+
+    /**
+     * Returns whether this set contains given value
+     *
+     * @param e value to look for
+     * @return {@code true} if the value is in this set
+     */
+    public boolean containsLong(long e) {
+        return range.contains(e);
+    }
+
+    /**
+     * Same as {@link #lower(Long)}, but throws {@link NoSuchElementException} if there is no such element
+     *
+     * @param e value to match
+     * @return the greatest element strictly less than {@code e} in the order of this set
+     */
+    public long lowerLong(long e) {
+        return getLong(range.lowerIndex(e));
+    }
+
+    /**
+     * Same as {@link #floor(Long)}, but throws {@link NoSuchElementException} if there is no such element
+     *
+     * @param e value to match
+     * @return the greatest element less than or equal to {@code e} in the order of this set
+     */
+    public long floorLong(long e) {
+        return getLong(range.floorIndex(e));
+    }
+
+    /**
+     * Same as {@link #ceiling(Long)}, but throws {@link NoSuchElementException} if there is no such element
+     *
+     * @param e value to match
+     * @return the least element greater than or equal to {@code e} in the order of this set
+     */
+    public long ceilingLong(long e) {
+        return getLong(range.ceilingIndex(e));
+    }
+
+    /**
+     * Same as {@link #higher(Long)}, but throws {@link NoSuchElementException} if there is no such element
+     *
+     * @param e value to match
+     * @return the least element strictly greater than {@code e} in the order of this set
+     */
+    public long higherLong(long e) {
+        return getLong(range.higherIndex(e));
+    }
+
+    /**
+     * Returns the first element of this set
+     *
+     * @return the first element
+     * @throws NoSuchElementException if this set is empty
+     */
+    public long firstLong() {
+        checkNonEmpty();
+        return get(range.firstIndex());
+    }
+
+    /**
+     * Returns the last element of this set
+     *
+     * @return the last element
+     * @throws NoSuchElementException if this set is empty
+     */
+    public long lastLong() {
+        checkNonEmpty();
+        return get(range.lastIndex());
+    }
+
+    /**
+     * Returns number of elements of this set, which may exceed {@link Integer#MAX_VALUE}
+     *
+     * @return number of elements
+     */
+    public long longSize() {
+        return range.size();
+    }
+
+    private void checkNonEmpty() {
+        if (isEmpty()) {
+            throw new NoSuchElementException("Set is empty, can't get a element");
+        }
+    }
+
+    @Override
+    public Long lower(Long e) {
+        return getElem(range.lowerIndex(e));
+    }
+
+    @Override
+    public Long floor(Long e) {
+        return getElem(range.floorIndex(e));
+    }
+
+    @Override
+    public Long ceiling(Long e) {
+        return getElem(range.ceilingIndex(e));
+    }
+
+    @Override
+    public Long higher(Long e) {
+        return getElem(range.higherIndex(e));
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Long && containsLong((Long) o);
+    }
+
+    @Override
+    public Long pollFirst() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Long pollLast() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public PrimitiveIterator.OfLong iterator() {
+        return new PrimitiveIterator.OfLong() {
+            private long pos = range.firstIndex();
+
+            @Override
+            public boolean hasNext() {
+                return range.descending ? pos >= range.from : pos < range.to;
+            }
+
+            @Override
+            public long nextLong() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return range.descending ? get(pos--) : get(pos++);
+            }
+        };
+    }
+
+    @Override
+    public MappedLongArraySet descendingSet() {
+        return new MappedLongArraySet(chunks, range.reversed());
+    }
+
+    @Override
+    public PrimitiveIterator.OfLong descendingIterator() {
+        return descendingSet().iterator();
+    }
+
+    @Override
+    public MappedLongArraySet subSet(Long fromElement, boolean fromInclusive, Long toElement, boolean toInclusive) {
+        return new MappedLongArraySet(chunks, range.subRange(fromElement, fromInclusive, toElement, toInclusive));
+    }
+
+    @Override
+    public MappedLongArraySet headSet(Long toElement, boolean inclusive) {
+        return new MappedLongArraySet(chunks, range.headRange(toElement, inclusive));
+    }
+
+    @Override
+    public MappedLongArraySet tailSet(Long fromElement, boolean inclusive) {
+        return new MappedLongArraySet(chunks, range.tailRange(fromElement, inclusive));
+    }
+
+    @Override
+    public Comparator<? super Long> comparator() {
+        return range.descending ? Collections.reverseOrder() : null;
+    }
+
+    @Override
+    public MappedLongArraySet subSet(Long fromElement, Long toElement) {
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public MappedLongArraySet headSet(Long toElement) {
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public MappedLongArraySet tailSet(Long fromElement) {
+        return tailSet(fromElement, true);
+    }
+
+    @Override
+    public Long first() {
+        return firstLong();
+    }
+
+    @Override
+    public Long last() {
+        return lastLong();
+    }
+
+    /**
+     * Returns number of elements of this set or {@link Integer#MAX_VALUE} if there are more of them
+     *
+     * @return number of elements
+     */
+    @Override
+    public int size() {
+        return (int) Math.min(longSize(), Integer.MAX_VALUE);
+    }
+}
@@ -0,0 +1,660 @@
+package ru.ifmo.rain.maksimov.arrayset;
+
+import java.util.*;
+
+/**
+ * Mutable {@link NavigableSet} built on the {@link ArraySet} design.
+ * Elements are kept in a sorted array, added and removed elements go to small sorted buffers
+ * that are merged into the array when they outgrow square root of its size or on {@link #compact()}.
+ * Reads search the array and both buffers. Views and iterators are backed by the set.
+ * Null elements are not permitted.
+ *
+ * @param <T> type of elements
+ */
+public class MutableArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
+    private final static int MIN_BUFFER_SIZE = 16;
+
+    private final Store<T> store;
+    private final boolean descending;
+    private final T lo;
+    private final boolean fromStart;
+    private final boolean loInclusive;
+    private final T hi;
+    private final boolean toEnd;
+    private final boolean hiInclusive;
+
+    private static class Store<T> {
+        private final Comparator<? super T> comparator;
+        private T[] data;
+        // elements absent in data
+        private T[] added;
+        private int addedSize;
+        // elements of data that are not in the set
+        private T[] removed;
+        private int removedSize;
+        private int limit;
+        // changed when elements are added or removed
+        private int modCount;
+        // changed when elements move between arrays
+        private int layout;
+
+        private Store(T[] data, Comparator<? super T> comparator) {
+            this.comparator = comparator;
+            reset(data);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T[] newArray(int length) {
+            return (T[]) new Object[length];
+        }
+
+        private void reset(T[] data) {
+            this.data = data;
+            added = newArray(MIN_BUFFER_SIZE);
+            addedSize = 0;
+            removed = newArray(MIN_BUFFER_SIZE);
+            removedSize = 0;
+            limit = Math.max(MIN_BUFFER_SIZE, (int) Math.sqrt(data.length));
+            layout++;
+        }
+
+        private int compare(T a, T b) {
+            return ArraySet.compare(comparator, a, b);
+        }
+
+        private int find(T[] a, int n, T t) {
+            return Arrays.binarySearch(a, 0, n, t, comparator);
+        }
+
+        // first index of the element that is greater than t (or equal to it, if not strict) among first n of a
+        private int bound(T[] a, int n, T t, boolean strict) {
+            int ind = find(a, n, t);
+            return ind < 0 ? -ind - 1 : strict ? ind + 1 : ind;
+        }
+
+        private T[] insert(T[] a, int n, int pos, T t) {
+            if (n == a.length) {
+                a = Arrays.copyOf(a, 2 * n);
+            }
+            System.arraycopy(a, pos, a, pos + 1, n - pos);
+            a[pos] = t;
+            return a;
+        }
+
+        private void delete(T[] a, int n, int pos) {
+            System.arraycopy(a, pos + 1, a, pos, n - pos - 1);
+            a[n - 1] = null;
+        }
+
+        private int size() {
+            return data.length - removedSize + addedSize;
+        }
+
+        // number of elements less than t, or not greater than it if inclusive
+        private int rank(T t, boolean inclusive) {
+            return bound(data, data.length, t, inclusive)
+                    - bound(removed, removedSize, t, inclusive)
+                    + bound(added, addedSize, t, inclusive);
+        }
+
+        private boolean contains(T t) {
+            return find(added, addedSize, t) >= 0
+                    || find(data, data.length, t) >= 0 && find(removed, removedSize, t) < 0;
+        }
+
+        private boolean add(T t) {
+            int k = find(added, addedSize, t);
+            if (k >= 0) {
+                return false;
+            }
+            int i = find(data, data.length, t);
+            if (i >= 0) {
+                int j = find(removed, removedSize, t);
+                if (j < 0) {
+                    return false;
+                }
+                delete(removed, removedSize--, j);
+                data[i] = t;
+            } else {
+                added = insert(added, addedSize++, -k - 1, t);
+            }
+            changed();
+            return true;
+        }
+
+        private boolean remove(T t) {
+            int k = find(added, addedSize, t);
+            if (k >= 0) {
+                delete(added, addedSize--, k);
+            } else {
+                int i = find(data, data.length, t);
+                int j = find(removed, removedSize, t);
+                if (i < 0 || j >= 0) {
+                    return false;
+                }
+                removed = insert(removed, removedSize++, -j - 1, data[i]);
+            }
+            changed();
+            return true;
+        }
+
+        private void changed() {
+            modCount++;
+            if (addedSize + removedSize > limit) {
+                compact();
+            }
+        }
+
+        private void compact() {
+            if (addedSize == 0 && removedSize == 0) {
+                return;
+            }
+            T[] result = newArray(size());
+            int i = 0, j = 0, k = 0, n = 0;
+            while (n < result.length) {
+                if (i < data.length && j < removedSize && compare(data[i], removed[j]) == 0) {
+                    i++;
+                    j++;
+                } else if (k == addedSize || i < data.length && compare(data[i], added[k]) < 0) {
+                    result[n++] = data[i++];
+                } else {
+                    result[n++] = added[k++];
+                }
+            }
+            reset(result);
+        }
+
+        private void clear() {
+            reset(newArray(0));
+            modCount++;
+        }
+
+        // merges distinct sorted elements into data
+        private boolean addAll(T[] sorted) {
+            compact();
+            T[] result = newArray(data.length + sorted.length);
+            int i = 0, k = 0, n = 0;
+            while (i < data.length || k < sorted.length) {
+                int cmp = i == data.length ? 1 : k == sorted.length ? -1 : compare(data[i], sorted[k]);
+                if (cmp <= 0) {
+                    k += cmp == 0 ? 1 : 0;
+                    result[n++] = data[i++];
+                } else {
+                    result[n++] = sorted[k++];
+                }
+            }
+            return replace(result, n);
+        }
+
+        // removes distinct sorted elements from data
+        private boolean removeAll(T[] sorted) {
+            compact();
+            T[] result = newArray(data.length);
+            int k = 0, n = 0;
+            for (T t : data) {
+                while (k < sorted.length && compare(sorted[k], t) < 0) {
+                    k++;
+                }
+                if (k == sorted.length || compare(sorted[k], t) != 0) {
+                    result[n++] = t;
+                }
+            }
+            return replace(result, n);
+        }
+
+        private boolean replace(T[] result, int n) {
+            if (n == data.length) {
+                return false;
+            }
+            reset(Arrays.copyOf(result, n));
+            modCount++;
+            return true;
+        }
+
+        // least element at positions i, j, k of data, removed and added or after them
+        private T lowest(int i, int j, int k) {
+            while (i < data.length && j < removedSize && compare(data[i], removed[j]) == 0) {
+                i++;
+                j++;
+            }
+            T a = i < data.length ? data[i] : null;
+            T b = k < addedSize ? added[k] : null;
+            return a == null ? b : b == null || compare(a, b) < 0 ? a : b;
+        }
+
+        // greatest element at positions i, j, k of data, removed and added or before them
+        private T highest(int i, int j, int k) {
+            while (i >= 0 && j >= 0 && compare(data[i], removed[j]) == 0) {
+                i--;
+                j--;
+            }
+            T a = i >= 0 ? data[i] : null;
+            T b = k >= 0 ? added[k] : null;
+            return a == null ? b : b == null || compare(a, b) > 0 ? a : b;
+        }
+
+        private T ceiling(T t, boolean inclusive) {
+            return lowest(bound(data, data.length, t, !inclusive),
+                    bound(removed, removedSize, t, !inclusive),
+                    bound(added, addedSize, t, !inclusive));
+        }
+
+        private T floor(T t, boolean inclusive) {
+            return highest(bound(data, data.length, t, inclusive) - 1,
+                    bound(removed, removedSize, t, inclusive) - 1,
+                    bound(added, addedSize, t, inclusive) - 1);
+        }
+    }
+
+    public MutableArraySet() {
+        this(Collections.emptyList(), null);
+    }
+
+    public MutableArraySet(Collection<? extends T> data) {
+        this(data, null);
+    }
+
+    public MutableArraySet(Collection<? extends T> data, Comparator<? super T> comparator) {
+        this(new Store<>(sorted(data, comparator), comparator), false, null, true, false, null, true, false);
+    }
+
+    private MutableArraySet(Store<T> store, boolean descending,
+                            T lo, boolean fromStart, boolean loInclusive,
+                            T hi, boolean toEnd, boolean hiInclusive) {
+        this.store = store;
+        this.descending = descending;
+        this.lo = lo;
+        this.fromStart = fromStart;
+        this.loInclusive = loInclusive;
+        this.hi = hi;
+        this.toEnd = toEnd;
+        this.hiInclusive = hiInclusive;
+    }
+
+    private static <T> T[] sorted(Collection<? extends T> data, Comparator<? super T> comparator) {
+        T[] elements = ArraySet.sorted(data, comparator);
+        for (T t : elements) {
+            Objects.requireNonNull(t, "Null elements are not permitted");
+        }
+        return elements;
+    }
+
+    private boolean isWhole() {
+        return fromStart && toEnd;
+    }
+
+    private boolean tooLow(T t) {
+        if (fromStart) {
+            return false;
+        }
+        int cmp = store.compare(t, lo);
+        return cmp < 0 || cmp == 0 && !loInclusive;
+    }
+
+    private boolean tooHigh(T t) {
+        if (toEnd) {
+            return false;
+        }
+        int cmp = store.compare(t, hi);
+        return cmp > 0 || cmp == 0 && !hiInclusive;
+    }
+
+    private boolean inRange(T t) {
+        return !tooLow(t) && !tooHigh(t);
+    }
+
+    // whether t can bound a view of this set
+    private boolean inRange(T t, boolean inclusive) {
+        return inclusive
+                ? inRange(t)
+                : (fromStart || store.compare(t, lo) >= 0) && (toEnd || store.compare(t, hi) <= 0);
+    }
+
+    // the following methods work in the order of the comparator regardless of the view direction
+
+    private T absLowest() {
+        T t = fromStart ? store.lowest(0, 0, 0) : store.ceiling(lo, loInclusive);
+        return t == null || tooHigh(t) ? null : t;
+    }
+
+    private T absHighest() {
+        T t = toEnd ? store.highest(store.data.length - 1, store.removedSize - 1, store.addedSize - 1)
+                : store.floor(hi, hiInclusive);
+        return t == null || tooLow(t) ? null : t;
+    }
+
+    private T absCeiling(T t, boolean inclusive) {
+        if (tooLow(t)) {
+            return absLowest();
+        }
+        T res = store.ceiling(t, inclusive);
+        return res == null || tooHigh(res) ? null : res;
+    }
+
+    private T absFloor(T t, boolean inclusive) {
+        if (tooHigh(t)) {
+            return absHighest();
+        }
+        T res = store.floor(t, inclusive);
+        return res == null || tooLow(res) ? null : res;
+    }
+
+    @Override
+    public T lower(T t) {
+        return descending ? absCeiling(t, false) : absFloor(t, false);
+    }
+
+    @Override
+    public T floor(T t) {
+        return descending ? absCeiling(t, true) : absFloor(t, true);
+    }
+
+    @Override
+    public T ceiling(T t) {
+        return descending ? absFloor(t, true) : absCeiling(t, true);
+    }
+
+    @Override
+    public T higher(T t) {
+        return descending ? absFloor(t, false) : absCeiling(t, false);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean contains(Object o) {
+        T t = (T) o;
+        return inRange(t) && store.contains(t);
+    }
+
+    @Override
+    public boolean add(T t) {
+        Objects.requireNonNull(t, "Null elements are not permitted");
+        if (!inRange(t)) {
+            throw new IllegalArgumentException("Element is out of the range of the set");
+        }
+        return store.add(t);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean remove(Object o) {
+        T t = (T) o;
+        return inRange(t) && store.remove(t);
+    }
+
+    /**
+     * Adds all elements of the collection. If it is not smaller than the buffer,
+     * merges them with the set in linear time after sorting them.
+     *
+     * @param c elements to add
+     * @return whether the set has changed
+     */
+    @Override
+    public boolean addAll(Collection<? extends T> c) {
+        if (!isWhole() || c.size() < store.limit) {
+            return super.addAll(c);
+        }
+        return store.addAll(sorted(c, store.comparator));
+    }
+
+    /**
+     * Removes all elements equal to elements of the collection according to the comparator.
+     * If the collection is not smaller than the buffer, it is sorted and subtracted from the set in linear time.
+     *
+     * @param c elements to remove
+     * @return whether the set has changed
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean removeAll(Collection<?> c) {
+        if (!isWhole() || c.size() < store.limit) {
+            return super.removeAll(c);
+        }
+        return store.removeAll(ArraySet.sorted((Collection<T>) c, store.comparator));
+    }
+
+    @Override
+    public void clear() {
+        if (isWhole()) {
+            store.clear();
+        } else {
+            super.clear();
+        }
+    }
+
+    /**
+     * Merges buffered changes into the sorted array, so that following reads search it only.
+     * Applies to the whole set, even if called on a view.
+     */
+    public void compact() {
+        store.compact();
+    }
+
+    @Override
+    public T pollFirst() {
+        T t = descending ? absHighest() : absLowest();
+        if (t != null) {
+            store.remove(t);
+        }
+        return t;
+    }
+
+    @Override
+    public T pollLast() {
+        T t = descending ? absLowest() : absHighest();
+        if (t != null) {
+            store.remove(t);
+        }
+        return t;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Itr(descending);
+    }
+
+    @Override
+    public Iterator<T> descendingIterator() {
+        return new Itr(!descending);
+    }
+
+    private class Itr implements Iterator<T> {
+        private final boolean down;
+        // positions of the next candidates in data, removed and added
+        private int i;
+        private int j;
+        private int k;
+        private T last;
+        private boolean canRemove;
+        private int expectedModCount = store.modCount;
+        private int expectedLayout;
+
+        private Itr(boolean down) {
+            this.down = down;
+            seek();
+        }
+
+        private void seek() {
+            if (last != null) {
+                seek(last, false);
+            } else if (down) {
+                seek(toEnd ? null : hi, hiInclusive);
+            } else {
+                seek(fromStart ? null : lo, loInclusive);
+            }
+        }
+
+        private void seek(T t, boolean inclusive) {
+            expectedLayout = store.layout;
+            if (down) {
+                i = t == null ? store.data.length - 1 : store.bound(store.data, store.data.length, t, inclusive) - 1;
+                j = t == null ? store.removedSize - 1 : store.bound(store.removed, store.removedSize, t, inclusive) - 1;
+                k = t == null ? store.addedSize - 1 : store.bound(store.added, store.addedSize, t, inclusive) - 1;
+            } else {
+                i = t == null ? 0 : store.bound(store.data, store.data.length, t, !inclusive);
+                j = t == null ? 0 : store.bound(store.removed, store.removedSize, t, !inclusive);
+                k = t == null ? 0 : store.bound(store.added, store.addedSize, t, !inclusive);
+            }
+        }
+
+        private T peek() {
+            if (store.modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (store.layout != expectedLayout) {
+                seek();
+            }
+            T t;
+            if (down) {
+                t = store.highest(i, j, k);
+                return t == null || tooLow(t) ? null : t;
+            } else {
+                t = store.lowest(i, j, k);
+                return t == null || tooHigh(t) ? null : t;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return peek() != null;
+        }
+
+        @Override
+        public T next() {
+            T t = peek();
+            if (t == null) {
+                throw new NoSuchElementException();
+            }
+            // elements of data and added are distinct, so the source can be told by reference.
+            // Elements of data skipped before t are all removed
+            if (down) {
+                if (k >= 0 && store.added[k] == t) {
+                    k--;
+                } else {
+                    for (; store.data[i] != t; i--) {
+                        j--;
+                    }
+                    i--;
+                }
+            } else {
+                if (k < store.addedSize && store.added[k] == t) {
+                    k++;
+                } else {
+                    for (; store.data[i] != t; i++) {
+                        j++;
+                    }
+                    i++;
+                }
+            }
+            last = t;
+            canRemove = true;
+            return t;
+        }
+
+        @Override
+        public void remove() {
+            if (!canRemove) {
+                throw new IllegalStateException();
+            }
+            if (store.modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            store.remove(last);
+            expectedModCount = store.modCount;
+            canRemove = false;
+            seek();
+        }
+    }
+
+    @Override
+    public NavigableSet<T> descendingSet() {
+        return new MutableArraySet<>(store, !descending, lo, fromStart, loInclusive, hi, toEnd, hiInclusive);
+    }
+
+    private void checkBound(T t, boolean inclusive) {
+        if (!inRange(t, inclusive)) {
+            throw new IllegalArgumentException("Bound is out of the range of the set");
+        }
+    }
+
+    private NavigableSet<T> view(T lo, boolean fromStart, boolean loInclusive, T hi, boolean toEnd, boolean hiInclusive) {
+        return new MutableArraySet<>(store, descending, lo, fromStart, loInclusive, hi, toEnd, hiInclusive);
+    }
+
+    @Override
+    public NavigableSet<T> subSet(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
+        int cmp = store.compare(fromElement, toElement);
+        if (descending ? cmp < 0 : cmp > 0) {
+            throw new IllegalArgumentException("fromElement > toElement");
+        }
+        checkBound(fromElement, fromInclusive);
+        checkBound(toElement, toInclusive);
+        return descending
+                ? view(toElement, false, toInclusive, fromElement, false, fromInclusive)
+                : view(fromElement, false, fromInclusive, toElement, false, toInclusive);
+    }
+
+    @Override
+    public NavigableSet<T> headSet(T toElement, boolean inclusive) {
+        checkBound(toElement, inclusive);
+        return descending
+                ? view(toElement, false, inclusive, hi, toEnd, hiInclusive)
+                : view(lo, fromStart, loInclusive, toElement, false, inclusive);
+    }
+
+    @Override
+    public NavigableSet<T> tailSet(T fromElement, boolean inclusive) {
+        checkBound(fromElement, inclusive);
+        return descending
+                ? view(lo, fromStart, loInclusive, fromElement, false, inclusive)
+                : view(fromElement, false, inclusive, hi, toEnd, hiInclusive);
+    }
+
+    @Override
+    public Comparator<? super T> comparator() {
+        return descending ? Collections.reverseOrder(store.comparator) : store.comparator;
+    }
+
+    @Override
+    public SortedSet<T> subSet(T fromElement, T toElement) {
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public SortedSet<T> headSet(T toElement) {
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public SortedSet<T> tailSet(T fromElement) {
+        return tailSet(fromElement, true);
+    }
+
+    @Override
+    public T first() {
+        T t = descending ? absHighest() : absLowest();
+        if (t == null) {
+            throw new NoSuchElementException("Set is empty, can't get a element");
+        }
+        return t;
+    }
+
+    @Override
+    public T last() {
+        T t = descending ? absLowest() : absHighest();
+        if (t == null) {
+            throw new NoSuchElementException("Set is empty, can't get a element");
+        }
+        return t;
+    }
+
+    @Override
+    public int size() {
+        if (isWhole()) {
+            return store.size();
+        }
+        int upper = toEnd ? store.size() : store.rank(hi, hiInclusive);
+        int lower = fromStart ? 0 : store.rank(lo, !loInclusive);
+        return Math.max(0, upper - lower);
+    }
+}
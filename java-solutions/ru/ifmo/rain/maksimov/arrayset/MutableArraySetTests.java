@@ -0,0 +1,172 @@
+package ru.ifmo.rain.maksimov.arrayset;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class MutableArraySetTests {
+    private final Random random = new Random(1011);
+
+    private List<Integer> randomValues(int size, int bound) {
+        final List<Integer> values = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            values.add(random.nextInt(bound));
+        }
+        return values;
+    }
+
+    private static void assertSameSet(String message, NavigableSet<Integer> expected, NavigableSet<Integer> actual) {
+        assertEquals(message, expected.size(), actual.size());
+        assertEquals(message, new ArrayList<>(expected), new ArrayList<>(actual));
+        assertEquals(message, new ArrayList<>(expected.descendingSet()), new ArrayList<>(actual.descendingSet()));
+        if (!expected.isEmpty()) {
+            assertEquals(message, expected.first(), actual.first());
+            assertEquals(message, expected.last(), actual.last());
+        }
+    }
+
+    // random interleaving of updates, queries and iterations compared with TreeSet
+    private void compareWithTreeSet(int initial, int bound, int operations, Comparator<Integer> comparator) {
+        final List<Integer> values = randomValues(initial, bound);
+        final NavigableSet<Integer> expected = new TreeSet<>(comparator);
+        expected.addAll(values);
+        final MutableArraySet<Integer> actual = new MutableArraySet<>(values, comparator);
+        assertSameSet("initial", expected, actual);
+        for (int op = 0; op < operations; op++) {
+            final Integer x = random.nextInt(bound);
+            final String message = "operation " + op + " on " + x + ", initial size " + initial;
+            switch (random.nextInt(12)) {
+                case 0:
+                case 1:
+                case 2:
+                    assertEquals(message, expected.add(x), actual.add(x));
+                    break;
+                case 3:
+                case 4:
+                    assertEquals(message, expected.remove(x), actual.remove(x));
+                    break;
+                case 5:
+                    final List<Integer> some = randomValues(random.nextInt(40), bound);
+                    assertEquals(message, expected.addAll(some), actual.addAll(some));
+                    break;
+                case 6:
+                    final List<Integer> other = randomValues(random.nextInt(40), bound);
+                    assertEquals(message, expected.removeAll(other), actual.removeAll(other));
+                    break;
+                case 7:
+                    assertEquals(message, expected.contains(x), actual.contains(x));
+                    assertEquals(message, expected.lower(x), actual.lower(x));
+                    assertEquals(message, expected.floor(x), actual.floor(x));
+                    assertEquals(message, expected.ceiling(x), actual.ceiling(x));
+                    assertEquals(message, expected.higher(x), actual.higher(x));
+                    break;
+                case 8:
+                    assertEquals(message, expected.pollFirst(), actual.pollFirst());
+                    assertEquals(message, expected.pollLast(), actual.pollLast());
+                    break;
+                case 9:
+                    // removes every third element through the iterator
+                    final Iterator<Integer> it = actual.iterator();
+                    for (int i = 0; it.hasNext(); i++) {
+                        final Integer value = it.next();
+                        if (i % 3 == 0) {
+                            it.remove();
+                            expected.remove(value);
+                        }
+                    }
+                    break;
+                case 10:
+                    final Integer y = random.nextInt(bound);
+                    final Integer lo = comparator == null ? Math.min(x, y) : Math.max(x, y);
+                    final Integer hi = comparator == null ? Math.max(x, y) : Math.min(x, y);
+                    assertSameSet(message, expected.subSet(lo, true, hi, false), actual.subSet(lo, true, hi, false));
+                    assertSameSet(message, expected.headSet(x, false), actual.headSet(x, false));
+                    assertSameSet(message, expected.tailSet(x, true), actual.tailSet(x, true));
+                    break;
+                default:
+                    if (random.nextInt(10) == 0) {
+                        actual.compact();
+                    }
+                    assertSameSet(message, expected, actual);
+            }
+        }
+        assertSameSet("final", expected, actual);
+    }
+
+    @Test
+    public void randomOperationsNaturalOrder() {
+        for (final int initial : new int[]{0, 1, 15, 16, 17, 300, 10_000}) {
+            compareWithTreeSet(initial, initial * 2 + 50, 3000, null);
+        }
+    }
+
+    @Test
+    public void randomOperationsReverseOrder() {
+        for (final int initial : new int[]{0, 16, 1000}) {
+            compareWithTreeSet(initial, initial * 2 + 50, 3000, Comparator.reverseOrder());
+        }
+    }
+
+    @Test
+    public void flushBoundaries() {
+        // buffers are merged when they outgrow 16 elements for sets of up to 256 elements
+        for (final int added : new int[]{15, 16, 17, 33}) {
+            final NavigableSet<Integer> expected = new TreeSet<>();
+            final MutableArraySet<Integer> actual = new MutableArraySet<>();
+            for (int i = 0; i < 200; i += 2) {
+                expected.add(i);
+                actual.add(i);
+            }
+            for (int i = 0; i < added; i++) {
+                assertTrue(actual.add(2 * i + 1));
+                expected.add(2 * i + 1);
+                assertSameSet("added " + i, expected, actual);
+            }
+            for (int i = 0; i < added; i++) {
+                assertTrue(actual.remove(4 * i));
+                expected.remove(4 * i);
+                assertSameSet("removed " + i, expected, actual);
+            }
+            actual.compact();
+            assertSameSet("compacted", expected, actual);
+        }
+    }
+
+    @Test
+    public void viewsAreBackedBySet() {
+        final MutableArraySet<Integer> set = new MutableArraySet<>(List.of(1, 3, 5, 7, 9));
+        final NavigableSet<Integer> head = set.headSet(6, true);
+        final NavigableSet<Integer> descending = set.descendingSet();
+        set.add(4);
+        set.remove(1);
+        assertEquals(List.of(3, 4, 5), new ArrayList<>(head));
+        assertEquals(List.of(9, 7, 5, 4, 3), new ArrayList<>(descending));
+        head.add(2);
+        assertTrue(set.contains(2));
+        try {
+            head.add(8);
+            fail("view accepted element out of its range");
+        } catch (IllegalArgumentException ignored) {
+        }
+    }
+
+    @Test
+    public void iteratorFailsOnConcurrentModification() {
+        final MutableArraySet<Integer> set = new MutableArraySet<>(List.of(1, 2, 3));
+        final Iterator<Integer> it = set.iterator();
+        it.next();
+        set.add(10);
+        try {
+            it.next();
+            fail("modification is not detected");
+        } catch (ConcurrentModificationException ignored) {
+        }
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void nullIsRejected() {
+        new MutableArraySet<Integer>().add(null);
+    }
+}
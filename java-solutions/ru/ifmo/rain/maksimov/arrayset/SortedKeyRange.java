@@ -0,0 +1,145 @@
+package ru.ifmo.rain.maksimov.arrayset;
+
+/**
+ * Range {@code [from, to)} of indices of sorted distinct primitive keys, seen in ascending or descending order.
+ * Index arithmetic of {@link IntArraySet}, {@link LongArraySet} and {@link MappedLongArraySet}:
+ * the sets store keys in their own way and read them through {@link Keys}, keys are compared as {@code long} values.
+ */
+final class SortedKeyRange {
+    /**
+     * Keys in ascending order by their indices
+     */
+    interface Keys {
+        long key(long index);
+
+        /**
+         * Returns first index in {@code [from, to)} of key greater than {@code e}, or equal to it if not {@code strict}.
+         * Sets with keys in an array override it with a search that reads the array directly:
+         * a loop over {@link #key} shared by all sets makes a call to one of several implementations on every step.
+         *
+         * @param from   first index of the range
+         * @param to     index after the last one of the range
+         * @param e      key to search
+         * @param strict whether equal key should be skipped
+         * @return index in the range or {@code to} if there is no such key
+         */
+        default long bound(long from, long to, long e, boolean strict) {
+            long l = from;
+            long r = to;
+            while (l < r) {
+                long m = (l + r) >>> 1;
+                long x = key(m);
+                if (x < e || strict && x == e) {
+                    l = m + 1;
+                } else {
+                    r = m;
+                }
+            }
+            return l;
+        }
+    }
+
+    final Keys keys;
+    final long from;
+    final long to;
+    final boolean descending;
+
+    SortedKeyRange(Keys keys, long from, long to, boolean descending) {
+        this.keys = keys;
+        this.from = from;
+        this.to = to;
+        this.descending = descending;
+    }
+
+    long size() {
+        return to - from;
+    }
+
+    /**
+     * Converts result of {@link java.util.Arrays#binarySearch} to the result of {@link Keys#bound}
+     *
+     * @param result index of the key or {@code -(insertion point) - 1}
+     * @param strict whether equal key should be skipped
+     * @return first index of key greater than the searched one, or equal to it if not {@code strict}
+     */
+    static long searchBound(long result, boolean strict) {
+        return result < 0 ? -result - 1 : strict ? result + 1 : result;
+    }
+
+    // first index in [from, to) of element >= e (or > e if strict)
+    private long bound(long e, boolean strict) {
+        return keys.bound(from, to, e, strict);
+    }
+
+    // index of the nearest element greater (or less) than e in the natural order, -1 if there is no such element
+    private long find(long e, boolean greater, boolean inclusive) {
+        if (greater) {
+            long ind = bound(e, !inclusive);
+            return ind < to ? ind : -1;
+        } else {
+            long ind = bound(e, inclusive) - 1;
+            return ind >= from ? ind : -1;
+        }
+    }
+
+    long lowerIndex(long e) {
+        return find(e, descending, false);
+    }
+
+    long floorIndex(long e) {
+        return find(e, descending, true);
+    }
+
+    long ceilingIndex(long e) {
+        return find(e, !descending, true);
+    }
+
+    long higherIndex(long e) {
+        return find(e, !descending, false);
+    }
+
+    boolean contains(long e) {
+        long ind = bound(e, false);
+        return ind < to && keys.key(ind) == e;
+    }
+
+    // index of the first element in the order of the range, the range should not be empty
+    long firstIndex() {
+        return descending ? to - 1 : from;
+    }
+
+    // index of the last element in the order of the range, the range should not be empty
+    long lastIndex() {
+        return descending ? from : to - 1;
+    }
+
+    SortedKeyRange reversed() {
+        return new SortedKeyRange(keys, from, to, !descending);
+    }
+
+    private SortedKeyRange view(long l, long r) {
+        return new SortedKeyRange(keys, l, Math.max(l, r), descending);
+    }
+
+    SortedKeyRange subRange(long fromElement, boolean fromInclusive, long toElement, boolean toInclusive) {
+        if (descending ? fromElement < toElement : fromElement > toElement) {
+            throw new IllegalArgumentException("fromElement >= toElement");
+        }
+        if (descending) {
+            return view(bound(toElement, !toInclusive), bound(fromElement, fromInclusive));
+        }
+        return view(bound(fromElement, !fromInclusive), bound(toElement, toInclusive));
+    }
+
+    SortedKeyRange headRange(long toElement, boolean inclusive) {
+        return descending
+                ? view(bound(toElement, !inclusive), to)
+                : view(from, bound(toElement, inclusive));
+    }
+
+    SortedKeyRange tailRange(long fromElement, boolean inclusive) {
+        return descending
+                ? view(from, bound(fromElement, inclusive))
+                : view(bound(fromElement, !inclusive), to);
+    }
+}
@@ -0,0 +1,132 @@
+package ru.ifmo.rain.maksimov.concurrent;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free bounded multi-producer multi-consumer queue over a ring buffer.
+ * Every slot has a sequence number telling whether it is free for the producer of a position
+ * or holds an element for the consumer of it, so producers and consumers only contend
+ * on the tail and head counters.
+ *
+ * @param <E> type of elements
+ * @author koalaa13 (github.com/koalaa13)
+ */
+class BoundedTaskQueue<E> {
+    private final static int MAX_CAPACITY = 1 << 30;
+
+    private final int mask;
+    private final Object[] items;
+    private final AtomicLongArray sequences;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * Creates queue
+     *
+     * @param capacity minimal number of elements queue can hold, rounded up to a power of two not less than two
+     */
+    BoundedTaskQueue(int capacity) {
+        if (capacity <= 0 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("queue capacity should be in [1, " + MAX_CAPACITY + "]");
+        }
+        // with a single slot, sequence of an occupied slot would be equal to sequence of a free one
+        int size = 2;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        mask = size - 1;
+        items = new Object[size];
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    int capacity() {
+        return items.length;
+    }
+
+    /**
+     * Adds first elements of {@code batch[from..to)} as consecutive elements of the queue, as many as there is place for
+     *
+     * @param batch elements to add
+     * @param from  index of the first element to add
+     * @param to    index after the last element to add
+     * @return number of added elements, {@code 0} if the queue is full
+     */
+    int offerSome(E[] batch, int from, int to) {
+        while (true) {
+            final long t = tail.get();
+            int count = 0;
+            boolean moved = false;
+            for (; count < to - from; count++) {
+                final long seq = sequences.get((int) (t + count) & mask);
+                // the slot still holds an element of the previous lap, or another producer took it
+                if (seq != t + count) {
+                    moved = seq > t + count;
+                    break;
+                }
+            }
+            if (moved && count == 0) {
+                continue;
+            }
+            if (count == 0) {
+                return 0;
+            }
+            if (tail.compareAndSet(t, t + count)) {
+                for (int i = 0; i < count; i++) {
+                    final int ind = (int) (t + i) & mask;
+                    items[ind] = batch[from + i];
+                    sequences.set(ind, t + i + 1);
+                }
+                return count;
+            }
+        }
+    }
+
+    /**
+     * Adds element to the tail of the queue, if there is place for it
+     *
+     * @param e element to add
+     * @return {@code false} if the queue is full
+     */
+    boolean offer(E e) {
+        while (true) {
+            final long t = tail.get();
+            final int ind = (int) t & mask;
+            final long seq = sequences.get(ind);
+            if (seq < t) {
+                return false;
+            }
+            if (seq == t && tail.compareAndSet(t, t + 1)) {
+                items[ind] = e;
+                sequences.set(ind, t + 1);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Removes the head of the queue
+     *
+     * @return the head or {@code null} if the queue is empty
+     */
+    @SuppressWarnings("unchecked")
+    E poll() {
+        while (true) {
+            final long h = head.get();
+            final int ind = (int) h & mask;
+            final long seq = sequences.get(ind);
+            if (seq < h + 1) {
+                return null;
+            }
+            if (seq == h + 1 && head.compareAndSet(h, h + 1)) {
+                final E item = (E) items[ind];
+                items[ind] = null;
+                sequences.set(ind, h + items.length);
+                return item;
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package ru.ifmo.rain.maksimov.concurrent;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.Assert.*;
+
+public class BoundedTaskQueueTests {
+    @Test
+    public void capacityIsRoundedUp() {
+        assertEquals(2, new BoundedTaskQueue<Integer>(1).capacity());
+        assertEquals(8, new BoundedTaskQueue<Integer>(5).capacity());
+        assertEquals(16, new BoundedTaskQueue<Integer>(16).capacity());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nonPositiveCapacity() {
+        new BoundedTaskQueue<Integer>(0);
+    }
+
+    @Test
+    public void fifoOverManyLaps() {
+        final BoundedTaskQueue<Integer> queue = new BoundedTaskQueue<>(4);
+        assertNull(queue.poll());
+        int next = 0;
+        int expected = 0;
+        for (int lap = 0; lap < 100; lap++) {
+            while (queue.offer(next)) {
+                next++;
+            }
+            assertEquals(expected + queue.capacity(), next);
+            for (int i = 0; i < 3; i++) {
+                assertEquals(Integer.valueOf(expected++), queue.poll());
+            }
+        }
+        while (expected < next) {
+            assertEquals(Integer.valueOf(expected++), queue.poll());
+        }
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void offerSomeAddsWhatFits() {
+        final BoundedTaskQueue<Integer> queue = new BoundedTaskQueue<>(4);
+        final Integer[] batch = {0, 1, 2, 3, 4, 5, 6};
+        assertEquals(3, queue.offerSome(batch, 0, 3));
+        assertEquals(1, queue.offerSome(batch, 3, batch.length));
+        assertEquals(0, queue.offerSome(batch, 4, batch.length));
+        assertEquals(Integer.valueOf(0), queue.poll());
+        assertEquals(Integer.valueOf(1), queue.poll());
+        assertEquals(2, queue.offerSome(batch, 4, batch.length));
+        for (int i = 2; i < 6; i++) {
+            assertEquals(Integer.valueOf(i), queue.poll());
+        }
+        assertNull(queue.poll());
+        assertEquals(0, queue.offerSome(batch, 3, 3));
+    }
+
+    @Test(timeout = 60_000)
+    public void manyProducersAndConsumers() throws Exception {
+        final int producers = 4;
+        final int consumers = 4;
+        final int perProducer = 50_000;
+        final BoundedTaskQueue<Integer> queue = new BoundedTaskQueue<>(8);
+        final AtomicIntegerArray seen = new AtomicIntegerArray(producers * perProducer);
+        final AtomicInteger consumed = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(producers + consumers);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                final int first = p * perProducer;
+                futures.add(executor.submit(() -> {
+                    final Integer[] batch = new Integer[3];
+                    for (int i = 0; i < perProducer; ) {
+                        if (i % 2 == 0) {
+                            final int to = Math.min(perProducer, i + batch.length);
+                            for (int j = i; j < to; j++) {
+                                batch[j - i] = first + j;
+                            }
+                            i += queue.offerSome(batch, 0, to - i);
+                        } else if (queue.offer(first + i)) {
+                            i++;
+                        }
+                        Thread.yield();
+                    }
+                }));
+            }
+            for (int c = 0; c < consumers; c++) {
+                futures.add(executor.submit(() -> {
+                    while (consumed.get() < seen.length()) {
+                        final Integer item = queue.poll();
+                        if (item == null) {
+                            Thread.yield();
+                        } else {
+                            seen.incrementAndGet(item);
+                            consumed.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        for (int i = 0; i < seen.length(); i++) {
+            assertEquals("item " + i, 1, seen.get(i));
+        }
+        assertNull(queue.poll());
+    }
+}
@@ -4,26 +4,57 @@ import info.kgeorgiy.java.advanced.concurrent.AdvancedIP;
 import info.kgeorgiy.java.advanced.mapper.ParallelMapper;
 
 import java.util.*;
-import java.util.function.Function;
-import java.util.function.Predicate;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.*;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static ru.ifmo.rain.maksimov.utils.ConcurrentUtils.*;
 
 /**
- * Implementation for {@link AdvancedIP} interface
+ * Implementation for {@link AdvancedIP} interface.
+ * Without {@link ParallelMapper} jobs are run on a pool of worker threads created on first use
+ * and stopped by {@link #close()}. Values are split into one block per thread or, in the work stealing mode,
+ * recursively split down to blocks of the grain size that idle threads of a {@link ForkJoinPool} steal.
+ * Calls of less than 4096 values are run on the calling thread if they are estimated
+ * to be cheaper than starting parallel work, the estimate is based on time of the first value of the call.
+ * Results of blocks are combined in the order of values: on worker threads a block is combined as soon as
+ * it and all blocks before it are done, with {@link ParallelMapper} blocks are combined after all of them are done.
+ * {@link #map} and {@link #filter} put values of all blocks into a single array and return a modifiable list of it.
+ * Lists without {@link RandomAccess} are copied into an array once before splitting,
+ * and blocks can be balanced by estimated cost of values instead of their number.
  *
  * @author koalaa13 (github.com/koalaa13)
  */
-public class IterativeParallelism implements AdvancedIP {
+public class IterativeParallelism implements AdvancedIP, AutoCloseable {
+    private final static int INLINE_SIZE = 4096;
+    private final static long INLINE_NANOS = 50_000;
+    private final static int MAX_POOLS = 4;
+
     final private ParallelMapper mapper;
+    final private int grainSize;
+    private ExecutorService workers;
+    // pools for the most recently used numbers of threads, the least recently used one is shut down
+    // when there are too many of them and finishes the tasks it already has
+    private final Map<Integer, ForkJoinPool> pools = new LinkedHashMap<>(MAX_POOLS, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, ForkJoinPool> eldest) {
+            if (size() > MAX_POOLS) {
+                eldest.getValue().shutdown();
+                return true;
+            }
+            return false;
+        }
+    };
+    private boolean closed;
 
     /**
      * Default constructor
      */
     public IterativeParallelism() {
         mapper = null;
+        grainSize = 0;
     }
 
     /**
@@ -33,36 +64,257 @@ public class IterativeParallelism implements AdvancedIP {
      */
     public IterativeParallelism(ParallelMapper mapper) {
         this.mapper = mapper;
+        grainSize = 0;
+    }
+
+    /**
+     * Constructor for the work stealing mode. Every call runs on a {@link ForkJoinPool}
+     * with parallelism equal to its number of threads
+     *
+     * @param grainSize number of values that are processed without further splitting.
+     */
+    public IterativeParallelism(int grainSize) {
+        if (grainSize <= 0) {
+            throw new IllegalArgumentException("grain size should be > 0");
+        }
+        mapper = null;
+        this.grainSize = grainSize;
+    }
+
+    // computes result of the block of values with indices [from, to)
+    private interface Block<R> {
+        R apply(int from, int to);
+    }
+
+    // filtered values of consecutive blocks, copied into one array when all blocks are done
+    private static class Segments {
+        private final List<Object[]> parts = new ArrayList<>();
+        private int size;
+
+        Segments(Object[] part) {
+            parts.add(part);
+            size = part.length;
+        }
+
+        Segments append(Segments other) {
+            parts.addAll(other.parts);
+            size += other.size;
+            return this;
+        }
+
+        Object[] concat() {
+            final Object[] result = new Object[size];
+            int pos = 0;
+            for (Object[] part : parts) {
+                System.arraycopy(part, 0, result, pos, part.length);
+                pos += part.length;
+            }
+            return result;
+        }
+    }
+
+    private static <T, R> Block<R> streamBlock(List<T> values, Function<? super Stream<T>, R> task) {
+        return (from, to) -> task.apply(values.subList(from, to).stream());
+    }
+
+    // values that can be split into blocks in constant time
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> randomAccess(List<T> values) {
+        return values instanceof RandomAccess ? values : (List<T>) Arrays.asList(values.toArray());
+    }
+
+    private static <T> IntToDoubleFunction costOf(List<T> values, ToDoubleFunction<? super T> cost) {
+        return i -> cost.applyAsDouble(values.get(i));
+    }
+
+    // bounds of blocks of almost equal numbers of values
+    private static int[] evenBounds(int size, int blocks) {
+        final int[] bounds = new int[blocks + 1];
+        final int rest = size % blocks;
+        for (int i = 0; i < blocks; ++i) {
+            bounds[i + 1] = bounds[i] + size / blocks + (i < rest ? 1 : 0);
+        }
+        return bounds;
+    }
+
+    // bounds of blocks of almost equal total cost, found by binary search in prefix sums of costs
+    private static int[] costBounds(int size, int blocks, IntToDoubleFunction cost) {
+        final double[] prefix = new double[size + 1];
+        for (int i = 0; i < size; i++) {
+            prefix[i + 1] = prefix[i] + Math.max(0, cost.applyAsDouble(i));
+        }
+        if (!(prefix[size] > 0) || Double.isInfinite(prefix[size])) {
+            return evenBounds(size, blocks);
+        }
+        final int[] bounds = new int[blocks + 1];
+        bounds[blocks] = size;
+        for (int i = 1; i < blocks; i++) {
+            final double target = prefix[size] * i / blocks;
+            int l = bounds[i - 1];
+            int r = size;
+            while (l < r) {
+                final int m = (l + r) >>> 1;
+                if (prefix[m] < target) {
+                    l = m + 1;
+                } else {
+                    r = m;
+                }
+            }
+            // the nearest of prefix sums around the target
+            bounds[i] = l > bounds[i - 1] && target - prefix[l - 1] < prefix[l] - target ? l - 1 : l;
+        }
+        return bounds;
     }
 
-    private <T, R> R doJob(int threads,
-                           List<T> values,
-                           Function<? super Stream<T>, R> task,
-                           Function<? super Stream<R>, R> collector) throws InterruptedException {
+    private <R> R doJob(int threads, int size, Block<R> block, BinaryOperator<R> combiner) throws InterruptedException {
+        return doJob(threads, size, null, block, combiner);
+    }
+
+    // results of blocks are combined in the order of values
+    private <R> R doJob(int threads, int size, IntToDoubleFunction cost, Block<R> block, BinaryOperator<R> combiner)
+            throws InterruptedException {
         checkThreads(threads);
-        threads = Math.min(values.size(), threads);
-        List<R> result;
-        final List<Stream<T>> subTasks = new ArrayList<>();
-        final int rest = values.size() % threads;
-        int blockSize = values.size() / threads + 1;
-        for (int i = 0, pos = 0; i < threads; ++i, pos += blockSize) {
-            if (rest == i) {
-                blockSize--;
+        if (threads == 1 || size <= 1) {
+            return block.apply(0, size);
+        }
+        if (size >= INLINE_SIZE) {
+            return runParallel(threads, size, cost, block, combiner);
+        }
+        // the first value tells whether the rest of this call is worth passing to other threads
+        final long start = System.nanoTime();
+        final R first = block.apply(0, 1);
+        final Block<R> rest = (from, to) -> block.apply(from + 1, to + 1);
+        final R other = (System.nanoTime() - start) * size < INLINE_NANOS
+                ? rest.apply(0, size - 1)
+                : runParallel(threads, size - 1, cost == null ? null : i -> cost.applyAsDouble(i + 1), rest, combiner);
+        return combiner.apply(first, other);
+    }
+
+    // without work stealing, blocks have equal estimated cost if cost of values is given, or equal size otherwise
+    private <R> R runParallel(int threads, int size, IntToDoubleFunction cost, Block<R> block, BinaryOperator<R> combiner)
+            throws InterruptedException {
+        threads = Math.min(size, threads);
+        if (threads <= 1) {
+            return block.apply(0, size);
+        }
+        if (grainSize > 0) {
+            return runForkJoin(threads, size, block, combiner);
+        }
+        final int[] bounds = cost == null ? evenBounds(size, threads) : costBounds(size, threads, cost);
+        return mapper == null
+                ? runOnWorkers(block, combiner, bounds)
+                : runOnMapper(block, combiner, bounds);
+    }
+
+    // runs the first block on the calling thread and the others on workers,
+    // results of workers are awaited and combined in the order of blocks
+    private <R> R runOnWorkers(Block<R> block, BinaryOperator<R> combiner, int[] bounds) throws InterruptedException {
+        final ExecutorService workers = getWorkers();
+        final List<Future<R>> futures = new ArrayList<>();
+        try {
+            for (int i = 1; i + 1 < bounds.length; i++) {
+                final int from = bounds[i];
+                final int to = bounds[i + 1];
+                futures.add(workers.submit(() -> block.apply(from, to)));
             }
-            subTasks.add(values.subList(pos, pos + blockSize).stream());
+            R result = block.apply(bounds[0], bounds[1]);
+            for (Future<R> future : futures) {
+                result = combiner.apply(result, getResult(future));
+            }
+            return result;
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    private <R> R runOnMapper(Block<R> block, BinaryOperator<R> combiner, int[] bounds) throws InterruptedException {
+        final List<Integer> blocks = new ArrayList<>();
+        for (int i = 0; i + 1 < bounds.length; i++) {
+            blocks.add(i);
+        }
+        final List<R> results = mapper.map(i -> block.apply(bounds[i], bounds[i + 1]), blocks);
+        R result = results.get(0);
+        for (int i = 1; i < results.size(); i++) {
+            result = combiner.apply(result, results.get(i));
+        }
+        return result;
+    }
+
+    // combined results of blocks of the grain size
+    private <R> R runForkJoin(int threads, int size, Block<R> block, BinaryOperator<R> combiner) throws InterruptedException {
+        final ForkJoinTask<R> root = submit(threads, new Blocks<>(size, block, combiner, 0, (size + grainSize - 1) / grainSize));
+        try {
+            return getResult(root);
+        } finally {
+            root.cancel(true);
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private class Blocks<R> extends RecursiveTask<R> {
+        private final int size;
+        private final Block<R> block;
+        private final BinaryOperator<R> combiner;
+        private final int from;
+        private final int to;
+
+        private Blocks(int size, Block<R> block, BinaryOperator<R> combiner, int from, int to) {
+            this.size = size;
+            this.block = block;
+            this.combiner = combiner;
+            this.from = from;
+            this.to = to;
         }
 
-        if (mapper == null) {
-            final List<Thread> workers = new ArrayList<>();
-            result = new ArrayList<>(Collections.nCopies(threads, null));
-            for (int i = 0; i < threads; i++) {
-                addAndStart(workers, getThread(i, result, subTasks.get(i), task));
+        @Override
+        protected R compute() {
+            if (to - from == 1) {
+                final int pos = from * grainSize;
+                return block.apply(pos, Math.min(size, pos + grainSize));
             }
-            joinThreads(workers);
-        } else {
-            result = mapper.map(task, subTasks);
+            final int mid = (from + to) >>> 1;
+            final Blocks<R> left = new Blocks<>(size, block, combiner, from, mid);
+            final Blocks<R> right = new Blocks<>(size, block, combiner, mid, to);
+            invokeAll(left, right);
+            return combiner.apply(left.join(), right.join());
         }
-        return collector.apply(result.stream());
+    }
+
+    // submits under the lock, so the pool can not be shut down by eviction before it gets the task
+    private synchronized <R> ForkJoinTask<R> submit(int threads, ForkJoinTask<R> task) {
+        checkOpen();
+        return pools.computeIfAbsent(threads, ForkJoinPool::new).submit(task);
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("IterativeParallelism is closed");
+        }
+    }
+
+    private synchronized ExecutorService getWorkers() {
+        checkOpen();
+        if (workers == null) {
+            workers = Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return workers;
+    }
+
+    /**
+     * Stops worker threads. Calls that need them fail with {@link IllegalStateException} after that.
+     * Does not close {@link ParallelMapper} given to the constructor.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (workers != null) {
+            closeExecutorService(workers);
+        }
+        pools.values().forEach(pool -> closeExecutorService(pool));
     }
 
     /**
@@ -77,9 +329,7 @@ public class IterativeParallelism implements AdvancedIP {
      */
     @Override
     public <T> T reduce(int threads, List<T> values, Monoid<T> monoid) throws InterruptedException {
-        Function<Stream<T>, T> reducer =
-                stream -> stream.reduce(monoid.getIdentity(), monoid.getOperator());
-        return doJob(threads, values, reducer, reducer);
+        return mapReduce(threads, values, Function.identity(), monoid);
     }
 
     /**
@@ -96,9 +346,34 @@ public class IterativeParallelism implements AdvancedIP {
      */
     @Override
     public <T, R> R mapReduce(int threads, List<T> values, Function<T, R> lift, Monoid<R> monoid) throws InterruptedException {
-        return doJob(threads, values,
-                stream -> stream.map(lift).reduce(monoid.getIdentity(), monoid.getOperator()),
-                stream -> stream.reduce(monoid.getIdentity(), monoid.getOperator()));
+        return mapReduce(threads, values, lift, monoid, null);
+    }
+
+    /**
+     * Maps and reduces values using monoid, splitting values into blocks of equal estimated cost.
+     * Cost is ignored in the work stealing mode.
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to reduce.
+     * @param lift    mapping function.
+     * @param monoid  monoid to use.
+     * @param cost    estimated cost of mapping of a value, {@code null} if costs are equal.
+     * @param <T>     value type of given values.
+     * @param <R>     value type of result.
+     * @return values mapped and reduced by provided monoid or {@link Monoid#getIdentity() identity} if no values specified.
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    public <T, R> R mapReduce(int threads, List<T> values, Function<T, R> lift, Monoid<R> monoid,
+                              ToDoubleFunction<? super T> cost) throws InterruptedException {
+        final List<T> list = randomAccess(values);
+        final BinaryOperator<R> operator = monoid.getOperator();
+        return doJob(threads, list.size(), cost == null ? null : costOf(list, cost), (from, to) -> {
+            R result = monoid.getIdentity();
+            for (T value : list.subList(from, to)) {
+                result = operator.apply(result, lift.apply(value));
+            }
+            return result;
+        }, operator);
     }
 
     /**
@@ -111,9 +386,10 @@ public class IterativeParallelism implements AdvancedIP {
      */
     @Override
     public String join(int threads, List<?> values) throws InterruptedException {
-        return doJob(threads, values,
-                stream -> stream.map(Object::toString).collect(Collectors.joining()),
-                stream -> stream.collect(Collectors.joining()));
+        final List<?> list = randomAccess(values);
+        return doJob(threads, list.size(),
+                streamBlock(list, stream -> stream.map(Object::toString).collect(Collectors.joining())),
+                String::concat);
     }
 
     /**
@@ -128,9 +404,29 @@ public class IterativeParallelism implements AdvancedIP {
      */
     @Override
     public <T> List<T> filter(int threads, List<? extends T> values, Predicate<? super T> predicate) throws InterruptedException {
-        return doJob(threads, values,
-                stream -> stream.filter(predicate).collect(Collectors.toList()),
-                stream -> stream.flatMap(Collection::stream).collect(Collectors.toList()));
+        return filter(threads, values, predicate, null);
+    }
+
+    /**
+     * Filters given values by {@link Predicate predicate}, splitting values into blocks of equal estimated cost.
+     * Cost is ignored in the work stealing mode.
+     *
+     * @param threads   number of concurrent threads.
+     * @param values    values to filter.
+     * @param predicate filter predicate.
+     * @param cost      estimated cost of testing a value, {@code null} if costs are equal.
+     * @param <T>       value type.
+     * @return {@link List} of filtered values.
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<T> filter(int threads, List<? extends T> values, Predicate<? super T> predicate,
+                              ToDoubleFunction<? super T> cost) throws InterruptedException {
+        final List<? extends T> list = randomAccess(values);
+        final Segments segments = doJob(threads, list.size(), cost == null ? null : costOf(list, cost),
+                streamBlock(list, stream -> new Segments(stream.filter(predicate).toArray())),
+                Segments::append);
+        return new ArrayList<>((List<T>) Arrays.asList(segments.concat()));
     }
 
     /**
@@ -146,9 +442,35 @@ public class IterativeParallelism implements AdvancedIP {
      */
     @Override
     public <T, U> List<U> map(int threads, List<? extends T> values, Function<? super T, ? extends U> f) throws InterruptedException {
-        return doJob(threads, values,
-                stream -> stream.map(f).collect(Collectors.toList()),
-                stream -> stream.flatMap(Collection::stream).collect(Collectors.toList()));
+        return map(threads, values, f, null);
+    }
+
+    /**
+     * Maps given values by {@link Function mapper}, splitting values into blocks of equal estimated cost.
+     * Cost is ignored in the work stealing mode.
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to map.
+     * @param f       mapper function.
+     * @param cost    estimated cost of mapping of a value, {@code null} if costs are equal.
+     * @param <T>     value type of given values.
+     * @param <U>     value type of result values.
+     * @return {@link List} of mapped values.
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    @SuppressWarnings("unchecked")
+    public <T, U> List<U> map(int threads, List<? extends T> values, Function<? super T, ? extends U> f,
+                              ToDoubleFunction<? super T> cost) throws InterruptedException {
+        final List<? extends T> list = randomAccess(values);
+        final Object[] result = new Object[list.size()];
+        doJob(threads, list.size(), cost == null ? null : costOf(list, cost), (from, to) -> {
+            int pos = from;
+            for (T value : list.subList(from, to)) {
+                result[pos++] = f.apply(value);
+            }
+            return null;
+        }, (a, b) -> null);
+        return new ArrayList<>((List<U>) Arrays.asList(result));
     }
 
     /**
@@ -181,8 +503,10 @@ public class IterativeParallelism implements AdvancedIP {
         if (values == null || values.isEmpty()) {
             throw new IllegalArgumentException("Values should not be null or empty");
         }
-        Function<Stream<? extends T>, T> streamMax = stream -> stream.min(comparator).get();
-        return doJob(threads, values, streamMax, streamMax);
+        final List<? extends T> list = randomAccess(values);
+        return doJob(threads, list.size(),
+                streamBlock(list, stream -> stream.min(comparator).get()),
+                BinaryOperator.minBy(comparator));
     }
 
     /**
@@ -216,8 +540,269 @@ public class IterativeParallelism implements AdvancedIP {
      */
     @Override
     public <T> boolean any(int threads, List<? extends T> values, Predicate<? super T> predicate) throws InterruptedException {
-        return doJob(threads, values,
-                stream -> stream.anyMatch(predicate),
-                stream -> stream.anyMatch(Boolean::booleanValue));
+        final Predicate<? super T> shared = shared(predicate);
+        final List<? extends T> list = randomAccess(values);
+        return doJob(threads, list.size(),
+                streamBlock(list, stream -> stream.anyMatch(shared)),
+                Boolean::logicalOr);
+    }
+
+    /**
+     * Reduces {@code int} values using associative operator without boxing them.
+     *
+     * @param threads  number of concurrent threads.
+     * @param values   values to reduce.
+     * @param identity identity of the operator.
+     * @param operator associative operator.
+     * @return values reduced by the operator or {@code identity} if no values specified.
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    public int reduce(int threads, int[] values, int identity, IntBinaryOperator operator) throws InterruptedException {
+        return doJob(threads, values.length, (from, to) -> {
+            int result = identity;
+            for (int i = from; i < to; i++) {
+                result = operator.applyAsInt(result, values[i]);
+            }
+            return result;
+        }, (a, b) -> operator.applyAsInt(a, b));
+    }
+
+    /**
+     * Sums {@code int} values.
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to sum.
+     * @return sum of values or {@code 0} if no values specified.
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    public int sum(int threads, int[] values) throws InterruptedException {
+        return reduce(threads, values, 0, Integer::sum);
+    }
+
+    /**
+     * Finds minimum of {@code int} values.
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to get minimum of.
+     * @return minimum of values.
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    public int minimum(int threads, int[] values) throws InterruptedException {
+        checkNonEmpty(values.length);
+        return reduce(threads, values, values[0], Math::min);
+    }
+
+    /**
+     * Finds maximum of {@code int} values.
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to get maximum of.
+     * @return maximum of values.
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    public int maximum(int threads, int[] values) throws InterruptedException {
+        checkNonEmpty(values.length);
+        return reduce(threads, values, values[0], Math::max);
+    }
+
+    /**
+     * Counts {@code int} values satisfying predicate.
+     *
+     * @param threads   number of concurrent threads.
+     * @param values    values to test.
+     * @param predicate test predicate.
+     * @return number of values satisfying predicate.
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    public int count(int threads, int[] values, IntPredicate predicate) throws InterruptedException {
+        return doJob(threads, values.length, (from, to) -> {
+            int result = 0;
+            for (int i = from; i < to; i++) {
+                if (predicate.test(values[i])) {
+                    result++;
+                }
+            }
+            return result;
+        }, Integer::sum);
+    }
+
+    /**
+     * Reduces {@code long} values using associative operator without boxing them.
+     *
+     * @param threads  number of concurrent threads.
+     * @param values   values to reduce.
+     * @param identity identity of the operator.
+     * @param operator associative operator.
+     * @return values reduced by the operator or {@code identity} if no values specified.
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    public long reduce(int threads, long[] values, long identity, LongBinaryOperator operator) throws InterruptedException {
+        return doJob(threads, values.length, (from, to) -> {
+            long result = identity;
+            for (int i = from; i < to; i++) {
+                result = operator.applyAsLong(result, values[i]);
+            }
+            return result;
+        }, (a, b) -> operator.applyAsLong(a, b));
+    }
+
+    /**
+     * Sums {@code long} values.
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to sum.
+     * @return sum of values or {@code 0} if no values specified.
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    public long sum(int threads, long[] values) throws InterruptedException {
+        return reduce(threads, values, 0, Long::sum);
+    }
+
+    /**
+     * Finds minimum of {@code long} values.
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to get minimum of.
+     * @return minimum of values.
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    public long minimum(int threads, long[] values) throws InterruptedException {
+        checkNonEmpty(values.length);
+        return reduce(threads, values, values[0], Math::min);
+    }
+
+    /**
+     * Finds maximum of {@code long} values.
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to get maximum of.
+     * @return maximum of values.
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    public long maximum(int threads, long[] values) throws InterruptedException {
+        checkNonEmpty(values.length);
+        return reduce(threads, values, values[0], Math::max);
+    }
+
+    /**
+     * Counts {@code long} values satisfying predicate.
+     *
+     * @param threads   number of concurrent threads.
+     * @param values    values to test.
+     * @param predicate test predicate.
+     * @return number of values satisfying predicate.
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    public int count(int threads, long[] values, LongPredicate predicate) throws InterruptedException {
+        return doJob(threads, values.length, (from, to) -> {
+            int result = 0;
+            for (int i = from; i < to; i++) {
+                if (predicate.test(values[i])) {
+                    result++;
+                }
+            }
+            return result;
+        }, Integer::sum);
+    }
+
+    /**
+     * Reduces {@code double} values using associative operator without boxing them.
+     *
+     * @param threads  number of concurrent threads.
+     * @param values   values to reduce.
+     * @param identity identity of the operator.
+     * @param operator associative operator.
+     * @return values reduced by the operator or {@code identity} if no values specified.
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    public double reduce(int threads, double[] values, double identity, DoubleBinaryOperator operator) throws InterruptedException {
+        return doJob(threads, values.length, (from, to) -> {
+            double result = identity;
+            for (int i = from; i < to; i++) {
+                result = operator.applyAsDouble(result, values[i]);
+            }
+            return result;
+        }, (a, b) -> operator.applyAsDouble(a, b));
+    }
+
+    /**
+     * Sums {@code double} values.
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to sum.
+     * @return sum of values or {@code 0} if no values specified.
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    public double sum(int threads, double[] values) throws InterruptedException {
+        return reduce(threads, values, 0, Double::sum);
+    }
+
+    /**
+     * Finds minimum of {@code double} values.
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to get minimum of.
+     * @return minimum of values.
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    public double minimum(int threads, double[] values) throws InterruptedException {
+        checkNonEmpty(values.length);
+        return reduce(threads, values, values[0], Math::min);
+    }
+
+    /**
+     * Finds maximum of {@code double} values.
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to get maximum of.
+     * @return maximum of values.
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    public double maximum(int threads, double[] values) throws InterruptedException {
+        checkNonEmpty(values.length);
+        return reduce(threads, values, values[0], Math::max);
+    }
+
+    /**
+     * Counts {@code double} values satisfying predicate.
+     *
+     * @param threads   number of concurrent threads.
+     * @param values    values to test.
+     * @param predicate test predicate.
+     * @return number of values satisfying predicate.
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    public int count(int threads, double[] values, DoublePredicate predicate) throws InterruptedException {
+        return doJob(threads, values.length, (from, to) -> {
+            int result = 0;
+            for (int i = from; i < to; i++) {
+                if (predicate.test(values[i])) {
+                    result++;
+                }
+            }
+            return result;
+        }, Integer::sum);
+    }
+
+    private static void checkNonEmpty(int size) {
+        if (size == 0) {
+            throw new IllegalArgumentException("Values should not be null or empty");
+        }
+    }
+
+    // predicate that is true for every value once the given one has been true for any value,
+    // so all blocks of a search stop at their next value after one of them finds a match
+    private static <T> Predicate<T> shared(Predicate<? super T> predicate) {
+        final AtomicBoolean found = new AtomicBoolean();
+        return value -> {
+            if (found.get()) {
+                return true;
+            }
+            if (predicate.test(value)) {
+                found.set(true);
+                return true;
+            }
+            return false;
+        };
     }
 }
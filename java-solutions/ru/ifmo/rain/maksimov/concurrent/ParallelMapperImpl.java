@@ -3,61 +3,453 @@ package ru.ifmo.rain.maksimov.concurrent;
 import info.kgeorgiy.java.advanced.mapper.ParallelMapper;
 
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 import static ru.ifmo.rain.maksimov.utils.ConcurrentUtils.*;
 
 /**
- * Implementation of {@link ParallelMapper}
+ * Implementation of {@link ParallelMapper}.
+ * Every {@link #map} call splits its arguments into ranges that are added to a lock-free bounded queue
+ * in as few operations as free place in the queue allows, the rest is added as workers take ranges
+ * from the queue. Workers park only when the queue is empty.
+ * Results are written into an array of the size of arguments, the caller is woken up when the last range is done.
+ * <p>
+ * In the fair mode a call is added to the queue once and workers take its ranges one by one,
+ * returning the call to the tail of the queue after every range, so concurrent calls are computed in turns
+ * and a small call does not wait for big calls added before it.
+ * <p>
+ * {@link #mapAsync} does not wait for results: it returns a {@link CompletableFuture} and can pass results
+ * to a consumer as soon as their ranges are done.
  */
 public class ParallelMapperImpl implements ParallelMapper {
-    private final Queue<Runnable> tasks;
-    private final List<Thread> workers;
-    private final int MAX_SIZE = 1;
+    private final static int DEFAULT_CAPACITY = 1024;
+    private final static int CHUNKS_PER_THREAD = 4;
+    private final static long FULL_QUEUE_PARK_NANOS = 10_000;
 
-    private class ResultList<R> {
-        private final List<R> data;
-        private int cnt;
+    private final BoundedTaskQueue<Task> tasks;
+    private final List<Worker> workers;
+    private final boolean fair;
+    private final Set<Job<?, ?>> running = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
 
-        ResultList(final int size) {
-            cnt = 0;
-            data = new ArrayList<>(Collections.nCopies(size, null));
+    /**
+     * State of a {@link #map} call that is not finished yet
+     */
+    public static class CallStatistics {
+        private final String caller;
+        private final int queuedRanges;
+        private final long waitNanos;
+
+        private CallStatistics(String caller, int queuedRanges, long waitNanos) {
+            this.caller = caller;
+            this.queuedRanges = queuedRanges;
+            this.waitNanos = waitNanos;
+        }
+
+        /**
+         * Returns name of the thread that called {@link #map}
+         *
+         * @return name of the calling thread
+         */
+        public String getCaller() {
+            return caller;
+        }
+
+        /**
+         * Returns number of argument ranges no worker has started yet
+         *
+         * @return number of waiting ranges
+         */
+        public int getQueuedRanges() {
+            return queuedRanges;
+        }
+
+        /**
+         * Returns time from the call till a worker started its first range, or till now if no range is started
+         *
+         * @return waiting time in nanoseconds
+         */
+        public long getWaitNanos() {
+            return waitNanos;
+        }
+
+        @Override
+        public String toString() {
+            return caller + ": " + queuedRanges + " ranges queued, waited " + waitNanos + " ns";
+        }
+    }
+
+    private static class Job<T, R> {
+        private final Function<? super T, ? extends R> f;
+        private final List<? extends T> args;
+        private final int chunkSize;
+        private final int chunks;
+        private final Object[] results;
+        private final AtomicInteger remaining;
+        private final AtomicInteger started = new AtomicInteger();
+        private final Thread owner;
+        private final long submitted = System.nanoTime();
+        private volatile long waited = -1;
+        private volatile Throwable error;
+
+        Job(Function<? super T, ? extends R> f, List<? extends T> args, int chunkSize) {
+            this.f = f;
+            this.args = args;
+            this.chunkSize = chunkSize;
+            chunks = (int) (((long) args.size() + chunkSize - 1) / chunkSize);
+            results = new Object[args.size()];
+            remaining = new AtomicInteger(chunks);
+            owner = Thread.currentThread();
+        }
+
+        // returns index of the next range to compute, not less than chunks if there is no such range
+        int claim() {
+            final int chunk = started.getAndIncrement();
+            if (chunk == 0) {
+                waited = System.nanoTime() - submitted;
+            }
+            return chunk;
+        }
+
+        void run(final int chunk) {
+            final int from = chunk * chunkSize;
+            final int to = from + Math.min(chunkSize, args.size() - from);
+            try {
+                for (int i = from; i < to && error == null; i++) {
+                    results[i] = f.apply(args.get(i));
+                }
+                if (error == null) {
+                    completed(chunk);
+                }
+            } catch (RuntimeException | Error e) {
+                fail(e);
+            } finally {
+                if (remaining.decrementAndGet() == 0) {
+                    finished();
+                }
+            }
+        }
+
+        // called when every result of the range is set
+        void completed(final int chunk) {
+        }
+
+        // called when every range is done or skipped
+        void finished() {
+            LockSupport.unpark(owner);
+        }
+
+        void fail(Throwable e) {
+            if (error == null) {
+                error = e;
+            }
+        }
+
+        Object[] getResults() {
+            return results;
+        }
+
+        Throwable getError() {
+            return error;
+        }
+
+        int getChunks() {
+            return chunks;
+        }
+
+        int getChunkSize() {
+            return chunkSize;
+        }
+
+        CallStatistics statistics() {
+            final long wait = waited;
+            return new CallStatistics(owner.getName(), Math.max(0, chunks - started.get()),
+                    wait == -1 ? System.nanoTime() - submitted : wait);
+        }
+
+        @SuppressWarnings("unchecked")
+        List<R> get() throws InterruptedException {
+            while (remaining.get() > 0) {
+                LockSupport.park(this);
+                if (Thread.interrupted()) {
+                    fail(new InterruptedException());
+                    throw new InterruptedException("Interrupted while waiting for results");
+                }
+            }
+            final Throwable e = error;
+            if (e instanceof RuntimeException) {
+                throw (RuntimeException) e;
+            }
+            if (e instanceof Error) {
+                throw (Error) e;
+            }
+            return (List<R>) Arrays.asList(results);
         }
+    }
+
+    private static class AsyncJob<T, R> extends Job<T, R> {
+        private final CompletableFuture<List<R>> future = new CompletableFuture<>();
+
+        AsyncJob(Function<? super T, ? extends R> f, List<? extends T> args, int chunkSize) {
+            super(f, args, chunkSize);
+            future.whenComplete((result, e) -> {
+                if (e instanceof CancellationException) {
+                    fail(e);
+                }
+            });
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        void finished() {
+            final Throwable e = getError();
+            if (e == null) {
+                future.complete((List<R>) Arrays.asList(getResults()));
+            } else {
+                future.completeExceptionally(e);
+            }
+        }
+
+        CompletableFuture<List<R>> getFuture() {
+            return future;
+        }
+    }
+
+    private static class StreamJob<T, R> extends AsyncJob<T, R> {
+        private final Consumer<? super R> consumer;
+        private final boolean ordered;
+        private final boolean[] done;
+        private int next;
 
-        synchronized void set(final int pos, R value) {
-            data.set(pos, value);
-            if (++cnt == data.size()) {
-                notify();
+        StreamJob(Function<? super T, ? extends R> f, List<? extends T> args, int chunkSize,
+                  Consumer<? super R> consumer, boolean ordered) {
+            super(f, args, chunkSize);
+            this.consumer = consumer;
+            this.ordered = ordered;
+            done = ordered ? new boolean[getChunks()] : null;
+        }
+
+        // ranges are passed to the consumer under the lock, so it is never called concurrently
+        @Override
+        synchronized void completed(final int chunk) {
+            if (!ordered) {
+                deliver(chunk);
+                return;
+            }
+            done[chunk] = true;
+            while (next < done.length && done[next]) {
+                deliver(next++);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void deliver(final int chunk) {
+            final Object[] results = getResults();
+            final int from = chunk * getChunkSize();
+            final int to = Math.min(results.length, from + getChunkSize());
+            for (int i = from; i < to && getError() == null; i++) {
+                consumer.accept((R) results[i]);
             }
         }
+    }
+
+    // results of ranges are collected by workers without waiting, and passed to the subscriber
+    // on the default executor of CompletableFuture as far as the subscriber has requested
+    private static class Publication<T, R> extends AsyncJob<T, R> implements Flow.Subscription {
+        private final Flow.Subscriber<? super R> subscriber;
+        private final boolean[] done;
+        private final int[] ready;
+        private volatile int readyCount;
+        private int next;
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger scheduled = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile Throwable invalidRequest;
+        // used by the draining thread only
+        private int cursor;
+        private int offset;
+        private boolean terminated;
+
+        Publication(Function<? super T, ? extends R> f, List<? extends T> args, int chunkSize,
+                    Flow.Subscriber<? super R> subscriber, boolean ordered) {
+            super(f, args, chunkSize);
+            this.subscriber = subscriber;
+            done = ordered ? new boolean[getChunks()] : null;
+            ready = new int[getChunks()];
+        }
 
-        synchronized List<R> get() throws InterruptedException {
-            while (cnt < data.size()) {
-                wait();
+        @Override
+        synchronized void completed(final int chunk) {
+            if (done == null) {
+                ready[readyCount] = chunk;
+                readyCount = readyCount + 1;
+            } else {
+                done[chunk] = true;
+                while (next < done.length && done[next]) {
+                    ready[readyCount] = next++;
+                    readyCount = readyCount + 1;
+                }
             }
-            return data;
+            schedule();
+        }
+
+        @Override
+        void finished() {
+            super.finished();
+            schedule();
+        }
+
+        @Override
+        public void request(final long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("Number of requested results should be positive");
+            } else {
+                requested.accumulateAndGet(n, (a, b) -> a + b < 0 ? Long.MAX_VALUE : a + b);
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            getFuture().cancel(false);
+        }
+
+        private void schedule() {
+            if (scheduled.getAndIncrement() == 0) {
+                getFuture().defaultExecutor().execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            do {
+                if (!terminated && !cancelled) {
+                    emit();
+                }
+            } while (scheduled.decrementAndGet() != 0);
+        }
+
+        @SuppressWarnings("unchecked")
+        private void emit() {
+            final Throwable invalid = invalidRequest;
+            if (invalid != null) {
+                terminated = true;
+                getFuture().cancel(false);
+                subscriber.onError(invalid);
+                return;
+            }
+            // checked before taking ready ranges, so every range is taken if the call is finished
+            final boolean finished = getFuture().isDone();
+            if (getError() != null) {
+                if (finished) {
+                    terminated = true;
+                    subscriber.onError(getError());
+                }
+                return;
+            }
+            final Object[] results = getResults();
+            for (final int count = readyCount; cursor < count; cursor++, offset = 0) {
+                final int from = ready[cursor] * getChunkSize();
+                final int to = Math.min(results.length, from + getChunkSize());
+                for (; from + offset < to; offset++) {
+                    if (cancelled || requested.get() == 0) {
+                        return;
+                    }
+                    requested.decrementAndGet();
+                    try {
+                        subscriber.onNext((R) results[from + offset]);
+                    } catch (RuntimeException e) {
+                        cancel();
+                        return;
+                    }
+                }
+            }
+            if (finished && cursor == ready.length) {
+                terminated = true;
+                subscriber.onComplete();
+            }
+        }
+    }
+
+    private interface Task extends Runnable {
+        Job<?, ?> job();
+    }
+
+    // one range of a call in the FIFO mode
+    private static class Chunk implements Task {
+        private final Job<?, ?> job;
+
+        Chunk(Job<?, ?> job) {
+            this.job = job;
+        }
+
+        @Override
+        public Job<?, ?> job() {
+            return job;
+        }
+
+        @Override
+        public void run() {
+            job.run(job.claim());
         }
     }
 
-    private void solveTask() throws InterruptedException {
-        Runnable task;
-        synchronized (tasks) {
-            while (tasks.isEmpty()) {
-                tasks.wait();
+    // whole call in the fair mode
+    private class Turn implements Task {
+        private final Job<?, ?> job;
+
+        Turn(Job<?, ?> job) {
+            this.job = job;
+        }
+
+        @Override
+        public Job<?, ?> job() {
+            return job;
+        }
+
+        @Override
+        public void run() {
+            for (int chunk = job.claim(); chunk < job.chunks; chunk = job.claim()) {
+                // if the queue is full, the range after this one is computed by this worker too
+                if (chunk + 1 < job.chunks && tasks.offer(this)) {
+                    wakeUp(1);
+                    job.run(chunk);
+                    return;
+                }
+                job.run(chunk);
             }
-            task = tasks.poll();
-            tasks.notifyAll();
         }
-        task.run();
     }
 
-    private void addTask(final Runnable task) throws InterruptedException {
-        synchronized (tasks) {
-            while (tasks.size() == MAX_SIZE) {
-                tasks.wait();
+    private class Worker extends Thread {
+        private volatile boolean idle;
+
+        @Override
+        public void run() {
+            // closed is checked too, as a function can swallow the interruption
+            while (!closed && !isInterrupted()) {
+                Task task = tasks.poll();
+                if (task == null) {
+                    idle = true;
+                    // a task added before idle was set could have been missed by the producer
+                    task = tasks.poll();
+                    if (task == null) {
+                        LockSupport.park(this);
+                        idle = false;
+                        continue;
+                    }
+                    idle = false;
+                }
+                task.run();
             }
-            tasks.add(task);
-            tasks.notifyAll();
         }
     }
 
@@ -67,36 +459,266 @@ public class ParallelMapperImpl implements ParallelMapper {
      * @param threads count of threads mapper can use to calculate function
      */
     public ParallelMapperImpl(final int threads) {
+        this(threads, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor with given capacity of the task queue
+     *
+     * @param threads  count of threads mapper can use to calculate function
+     * @param capacity count of argument ranges that can wait in the queue
+     */
+    public ParallelMapperImpl(final int threads, final int capacity) {
+        this(threads, capacity, false);
+    }
+
+    /**
+     * Constructor with given capacity of the task queue and scheduling mode
+     *
+     * @param threads  count of threads mapper can use to calculate function
+     * @param capacity count of argument ranges (or calls in the fair mode) that can wait in the queue
+     * @param fair     {@code true} if concurrent calls should be computed in turns
+     */
+    public ParallelMapperImpl(final int threads, final int capacity, final boolean fair) {
         checkThreads(threads);
-        tasks = new ArrayDeque<>();
+        this.fair = fair;
+        tasks = new BoundedTaskQueue<>(capacity);
         workers = new ArrayList<>();
         for (int i = 0; i < threads; ++i) {
-            addAndStart(workers, new Thread(() -> {
-                try {
-                    while (!Thread.interrupted()) {
-                        solveTask();
-                    }
-                } catch (InterruptedException ignored) {
-                } finally {
-                    Thread.currentThread().interrupt();
-                }
-            }));
+            final Worker worker = new Worker();
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    // every attempt adds as many tasks as there is free place for, so the queue is refilled as workers take tasks
+    private void addTasks(final Task[] added) throws InterruptedException {
+        for (int from = 0; from < added.length; ) {
+            final int count = tasks.offerSome(added, from, added.length);
+            if (count > 0) {
+                wakeUp(count);
+                from += count;
+                continue;
+            }
+            LockSupport.parkNanos(FULL_QUEUE_PARK_NANOS);
+            if (Thread.interrupted()) {
+                throw new InterruptedException("Interrupted while waiting for place in the queue");
+            }
+            if (closed) {
+                throw new IllegalStateException("Mapper is closed");
+            }
+        }
+    }
+
+    private void wakeUp(int count) {
+        for (final Worker worker : workers) {
+            if (count == 0) {
+                break;
+            }
+            if (worker.idle) {
+                LockSupport.unpark(worker);
+                count--;
+            }
         }
     }
 
     @Override
     public <T, R> List<R> map(Function<? super T, ? extends R> f, List<? extends T> args) throws InterruptedException {
-        ResultList<R> res = new ResultList<>(args.size());
-        for (int i = 0; i < args.size(); i++) {
-            final int ind = i;
-            addTask(() -> res.set(ind, f.apply(args.get(ind))));
+        return map(f, args, defaultChunkSize(args));
+    }
+
+    private int defaultChunkSize(final List<?> args) {
+        return Math.max(1, args.size() / (workers.size() * CHUNKS_PER_THREAD));
+    }
+
+    /**
+     * Same as {@link #map(Function, List)}, but every worker takes {@code chunkSize} consecutive arguments at once
+     *
+     * @param f         function to apply
+     * @param args      arguments of the function
+     * @param chunkSize number of arguments in every task, the last one can be smaller
+     * @param <T>       type of arguments
+     * @param <R>       type of results
+     * @return list of results in the order of arguments
+     * @throws InterruptedException     if the calling thread was interrupted
+     * @throws IllegalArgumentException if {@code chunkSize} is not positive
+     */
+    public <T, R> List<R> map(Function<? super T, ? extends R> f, List<? extends T> args, int chunkSize)
+            throws InterruptedException {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size should be positive");
+        }
+        if (closed) {
+            throw new IllegalStateException("Mapper is closed");
+        }
+        final Job<T, R> job = new Job<>(f, args, chunkSize);
+        if (job.chunks == 0) {
+            return job.get();
+        }
+        final Task[] added;
+        if (fair) {
+            added = new Task[]{new Turn(job)};
+        } else {
+            added = new Task[job.chunks];
+            for (int i = 0; i < added.length; i++) {
+                added[i] = new Chunk(job);
+            }
+        }
+        running.add(job);
+        try {
+            try {
+                addTasks(added);
+            } catch (InterruptedException | RuntimeException e) {
+                job.fail(e);
+                throw e;
+            }
+            if (closed) {
+                // tasks added after close() drained the queue are never taken by workers
+                failPending();
+            }
+            return job.get();
+        } finally {
+            running.remove(job);
+        }
+    }
+
+    /**
+     * Same as {@link #map(Function, List)}, but at most {@code parallelism} workers compute this call
+     *
+     * @param f           function to apply
+     * @param args        arguments of the function
+     * @param parallelism maximal number of workers to use
+     * @param <T>         type of arguments
+     * @param <R>         type of results
+     * @return list of results in the order of arguments
+     * @throws InterruptedException     if the calling thread was interrupted
+     * @throws IllegalArgumentException if {@code parallelism} is not positive
+     */
+    public <T, R> List<R> mapLimited(Function<? super T, ? extends R> f, List<? extends T> args, int parallelism)
+            throws InterruptedException {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism should be positive");
         }
-        return res.get();
+        final int ranges = Math.min(parallelism, workers.size());
+        return map(f, args, Math.max(1, (int) (((long) args.size() + ranges - 1) / ranges)));
+    }
+
+    /**
+     * Same as {@link #map(Function, List)}, but returns without waiting for results.
+     * If the task queue is full, the calling thread computes ranges of this call until the queue has place.
+     * Cancelling the returned future skips ranges that are not started yet
+     *
+     * @param f    function to apply
+     * @param args arguments of the function
+     * @param <T>  type of arguments
+     * @param <R>  type of results
+     * @return future completed with list of results in the order of arguments,
+     * or exceptionally with an exception thrown by the function
+     */
+    public <T, R> CompletableFuture<List<R>> mapAsync(Function<? super T, ? extends R> f, List<? extends T> args) {
+        return submit(new AsyncJob<>(f, args, defaultChunkSize(args)));
+    }
+
+    /**
+     * Same as {@link #mapAsync(Function, List)}, but also passes results to the consumer as soon as they are computed.
+     * The consumer is never called concurrently, no results are passed after the function throws an exception.
+     * The consumer is called by worker threads and holds them, so it should be fast and must not block,
+     * use {@link #mapPublisher} for slow receivers of results
+     *
+     * @param f        function to apply
+     * @param args     arguments of the function
+     * @param consumer consumer of results
+     * @param ordered  {@code true} if results should be passed in the order of arguments,
+     *                 otherwise ranges of results are passed in the order they are done
+     * @param <T>      type of arguments
+     * @param <R>      type of results
+     * @return future completed with list of results after all of them are passed to the consumer
+     */
+    public <T, R> CompletableFuture<List<R>> mapAsync(Function<? super T, ? extends R> f, List<? extends T> args,
+                                                      Consumer<? super R> consumer, boolean ordered) {
+        return submit(new StreamJob<>(f, args, defaultChunkSize(args), consumer, ordered));
     }
 
+    /**
+     * Returns publisher of results of the function. Arguments are computed anew for every subscriber.
+     * Workers do not wait for the subscriber: computed results are kept and passed to it
+     * on the default executor of {@link CompletableFuture} as it requests them.
+     * Cancelling the subscription skips ranges that are not started yet
+     *
+     * @param f       function to apply
+     * @param args    arguments of the function
+     * @param ordered {@code true} if results should be published in the order of arguments
+     * @param <T>     type of arguments
+     * @param <R>     type of results
+     * @return publisher of results, completed exceptionally if the function throws an exception
+     * @see #mapAsync(Function, List, Consumer, boolean)
+     */
+    public <T, R> Flow.Publisher<R> mapPublisher(Function<? super T, ? extends R> f, List<? extends T> args,
+                                                 boolean ordered) {
+        return subscriber -> {
+            final Publication<T, R> publication =
+                    new Publication<>(f, args, defaultChunkSize(args), subscriber, ordered);
+            subscriber.onSubscribe(publication);
+            try {
+                submit(publication);
+            } catch (IllegalStateException e) {
+                publication.fail(e);
+                publication.finished();
+            }
+        };
+    }
+
+    private <T, R> CompletableFuture<List<R>> submit(final AsyncJob<T, R> job) {
+        if (closed) {
+            throw new IllegalStateException("Mapper is closed");
+        }
+        if (job.getChunks() == 0) {
+            job.finished();
+            return job.future;
+        }
+        running.add(job);
+        job.future.whenComplete((result, e) -> running.remove(job));
+        final Turn turn = new Turn(job);
+        if (tasks.offer(turn)) {
+            wakeUp(1);
+        } else {
+            turn.run();
+        }
+        if (closed) {
+            failPending();
+        }
+        return job.future;
+    }
+
+    /**
+     * Returns state of every {@link #map} call that is not finished yet
+     *
+     * @return list of statistics of running calls
+     */
+    public List<CallStatistics> getCallStatistics() {
+        final List<CallStatistics> res = new ArrayList<>();
+        for (final Job<?, ?> job : running) {
+            res.add(job.statistics());
+        }
+        return res;
+    }
+
+    /**
+     * Stops workers. Calls waiting for results fail with {@link IllegalStateException}
+     */
     @Override
     public void close() {
+        closed = true;
         workers.forEach(Thread::interrupt);
-        joinThreadsExceptionSafely(workers);
+        joinThreadsExceptionSafely(new ArrayList<>(workers));
+        failPending();
+    }
+
+    private void failPending() {
+        final IllegalStateException e = new IllegalStateException("Mapper is closed");
+        for (Task task = tasks.poll(); task != null; task = tasks.poll()) {
+            task.job().fail(e);
+            task.run();
+        }
     }
 }
@@ -0,0 +1,384 @@
+package ru.ifmo.rain.maksimov.concurrent;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+
+public class ParallelMapperImplTests {
+    private final static int[] CAPACITIES = {1, 2, 7, 1024};
+
+    private static List<Integer> range(int size) {
+        return IntStream.range(0, size).boxed().collect(Collectors.toList());
+    }
+
+    private static <T, R> List<R> expected(Function<? super T, ? extends R> f, List<T> args) {
+        return args.stream().map(f).collect(Collectors.toList());
+    }
+
+    private static Integer sleep(Integer x, long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return x;
+    }
+
+    @Test(timeout = 60_000)
+    public void mapsInOrderOfArguments() throws InterruptedException {
+        final Function<Integer, Integer> f = x -> x * 3 + 1;
+        for (final int capacity : CAPACITIES) {
+            for (final boolean fair : new boolean[]{false, true}) {
+                try (ParallelMapperImpl mapper = new ParallelMapperImpl(3, capacity, fair)) {
+                    for (final int size : new int[]{0, 1, 5, 1000, 100_000}) {
+                        final List<Integer> args = range(size);
+                        assertEquals("capacity " + capacity + ", size " + size, expected(f, args), mapper.map(f, args));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test(timeout = 60_000)
+    public void concurrentCallers() throws Exception {
+        for (final int capacity : CAPACITIES) {
+            final ExecutorService callers = Executors.newFixedThreadPool(6);
+            try (ParallelMapperImpl mapper = new ParallelMapperImpl(4, capacity)) {
+                final List<Future<?>> futures = new ArrayList<>();
+                for (int c = 0; c < 6; c++) {
+                    final int shift = c;
+                    futures.add(callers.submit(() -> {
+                        for (int i = 0; i < 50; i++) {
+                            final List<Integer> args = range(i % 10 == 0 ? 20_000 : i);
+                            assertEquals(expected(x -> x + shift, args), mapper.map(x -> x + shift, args));
+                        }
+                        return null;
+                    }));
+                }
+                for (final Future<?> future : futures) {
+                    future.get();
+                }
+            } finally {
+                callers.shutdownNow();
+            }
+        }
+    }
+
+    @Test(timeout = 60_000)
+    public void functionThrows() throws InterruptedException {
+        for (final int capacity : CAPACITIES) {
+            try (ParallelMapperImpl mapper = new ParallelMapperImpl(3, capacity)) {
+                final IllegalArgumentException thrown = new IllegalArgumentException("500");
+                try {
+                    mapper.map(x -> {
+                        if (x == 500) {
+                            throw thrown;
+                        }
+                        return x;
+                    }, range(1000));
+                    fail("exception of the function is not thrown");
+                } catch (IllegalArgumentException e) {
+                    assertSame(thrown, e);
+                }
+                final List<Integer> args = range(1000);
+                assertEquals("mapper is broken after exception", args, mapper.map(Function.identity(), args));
+                assertTrue(mapper.getCallStatistics().isEmpty());
+            }
+        }
+    }
+
+    @Test(timeout = 60_000)
+    public void closeWhileCallsAreInFlight() throws Exception {
+        final ParallelMapperImpl mapper = new ParallelMapperImpl(2, 4);
+        final ExecutorService callers = Executors.newFixedThreadPool(3);
+        try {
+            final List<Future<List<Integer>>> futures = new ArrayList<>();
+            for (int c = 0; c < 3; c++) {
+                futures.add(callers.submit(() -> mapper.map(x -> sleep(x, 1), range(2000))));
+            }
+            Thread.sleep(100);
+            mapper.close();
+            for (final Future<List<Integer>> future : futures) {
+                try {
+                    future.get();
+                    fail("call is not failed by close");
+                } catch (ExecutionException e) {
+                    assertTrue(e.getCause().toString(), e.getCause() instanceof IllegalStateException);
+                }
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+        try {
+            mapper.map(Function.identity(), range(10));
+            fail("closed mapper accepted a call");
+        } catch (IllegalStateException ignored) {
+        }
+    }
+
+    @Test(timeout = 60_000)
+    public void interruptedCaller() throws InterruptedException {
+        try (ParallelMapperImpl mapper = new ParallelMapperImpl(2)) {
+            final Thread caller = Thread.currentThread();
+            final Thread interrupter = new Thread(() -> {
+                sleep(0, 50);
+                caller.interrupt();
+            });
+            interrupter.start();
+            try {
+                mapper.map(x -> sleep(x, 10), range(1000));
+                fail("interruption is ignored");
+            } catch (InterruptedException ignored) {
+            }
+            interrupter.join();
+            final List<Integer> args = range(100);
+            assertEquals(args, mapper.map(Function.identity(), args));
+        }
+    }
+
+    @Test(timeout = 60_000)
+    public void explicitChunkSize() throws InterruptedException {
+        final Function<Integer, Integer> f = x -> x - 7;
+        try (ParallelMapperImpl mapper = new ParallelMapperImpl(3, 4)) {
+            for (final int chunkSize : new int[]{1, 3, 64, 1000, Integer.MAX_VALUE}) {
+                final List<Integer> args = range(1000);
+                assertEquals("chunk size " + chunkSize, expected(f, args), mapper.map(f, args, chunkSize));
+            }
+            try {
+                mapper.map(f, range(10), 0);
+                fail("zero chunk size accepted");
+            } catch (IllegalArgumentException ignored) {
+            }
+        }
+    }
+
+    @Test(timeout = 60_000)
+    public void limitedParallelism() throws InterruptedException {
+        try (ParallelMapperImpl mapper = new ParallelMapperImpl(4)) {
+            for (final int parallelism : new int[]{1, 2, 10}) {
+                final AtomicInteger current = new AtomicInteger();
+                final AtomicInteger peak = new AtomicInteger();
+                final List<Integer> args = range(40);
+                assertEquals(args, mapper.mapLimited(x -> {
+                    peak.accumulateAndGet(current.incrementAndGet(), Math::max);
+                    sleep(x, 2);
+                    current.decrementAndGet();
+                    return x;
+                }, args, parallelism));
+                assertTrue("parallelism " + parallelism + ", peak " + peak.get(), peak.get() <= Math.min(parallelism, 4));
+            }
+            try {
+                mapper.mapLimited(Function.identity(), range(10), 0);
+                fail("zero parallelism accepted");
+            } catch (IllegalArgumentException ignored) {
+            }
+        }
+    }
+
+    @Test(timeout = 60_000)
+    public void fairModeRunsSmallCallBeforeHugeOne() throws Exception {
+        for (final int capacity : new int[]{1, 1024}) {
+            final ExecutorService callers = Executors.newSingleThreadExecutor();
+            try (ParallelMapperImpl mapper = new ParallelMapperImpl(2, capacity, true)) {
+                final Future<List<Integer>> huge = callers.submit(() -> mapper.map(x -> sleep(x, 1), range(4000), 10));
+                while (mapper.getCallStatistics().isEmpty()) {
+                    Thread.sleep(1);
+                }
+                final List<Integer> args = range(8);
+                assertEquals(args, mapper.map(x -> sleep(x, 1), args, 1));
+                assertFalse("capacity " + capacity + ": small call waited for the huge one", huge.isDone());
+                assertEquals(range(4000), huge.get());
+            } finally {
+                callers.shutdownNow();
+            }
+        }
+    }
+
+    // records signals of a publisher, requesting given number of results on subscription
+    private static class Recorder<T> implements Flow.Subscriber<T> {
+        private final long initial;
+        private final List<T> received = Collections.synchronizedList(new ArrayList<>());
+        private final CompletableFuture<Void> end = new CompletableFuture<>();
+        private final CompletableFuture<Flow.Subscription> subscription = new CompletableFuture<>();
+
+        Recorder(long initial) {
+            this.initial = initial;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription.complete(subscription);
+            subscription.request(initial);
+        }
+
+        @Override
+        public void onNext(T item) {
+            received.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            end.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            end.complete(null);
+        }
+
+        void await() throws Exception {
+            end.get(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test(timeout = 60_000)
+    public void asyncResultsAndConsumers() throws Exception {
+        final Function<Integer, Integer> f = x -> x * 2;
+        for (final int capacity : new int[]{1, 1024}) {
+            try (ParallelMapperImpl mapper = new ParallelMapperImpl(3, capacity)) {
+                for (final int size : new int[]{0, 1, 1000}) {
+                    final List<Integer> args = range(size);
+                    final List<Integer> expected = expected(f, args);
+                    assertEquals(expected, mapper.mapAsync(f, args).get());
+
+                    final List<Integer> ordered = new ArrayList<>();
+                    assertEquals(expected, mapper.mapAsync(f, args, ordered::add, true).get());
+                    assertEquals(expected, ordered);
+
+                    final List<Integer> unordered = new ArrayList<>();
+                    assertEquals(expected, mapper.mapAsync(f, args, unordered::add, false).get());
+                    Collections.sort(unordered);
+                    assertEquals(expected, unordered);
+                }
+                try {
+                    mapper.mapAsync(x -> {
+                        if (x == 500) {
+                            throw new IllegalArgumentException();
+                        }
+                        return x;
+                    }, range(1000)).get();
+                    fail("exception of the function is not passed to the future");
+                } catch (ExecutionException e) {
+                    assertTrue(e.getCause() instanceof IllegalArgumentException);
+                }
+            }
+        }
+    }
+
+    @Test(timeout = 60_000)
+    public void asyncCancellationSkipsRanges() throws Exception {
+        try (ParallelMapperImpl mapper = new ParallelMapperImpl(2)) {
+            final AtomicInteger computed = new AtomicInteger();
+            final CompletableFuture<List<Integer>> future = mapper.mapAsync(x -> {
+                computed.incrementAndGet();
+                return sleep(x, 1);
+            }, range(2000));
+            Thread.sleep(20);
+            assertTrue(future.cancel(true));
+            try {
+                future.get();
+                fail("cancelled future has a result");
+            } catch (CancellationException ignored) {
+            }
+            final List<Integer> args = range(100);
+            assertEquals("mapper is broken after cancellation", args, mapper.map(Function.identity(), args));
+            assertTrue("skipped ranges are computed: " + computed.get(), computed.get() < 2000);
+            assertTrue(mapper.getCallStatistics().isEmpty());
+        }
+    }
+
+    @Test(timeout = 60_000)
+    public void publisherRespectsDemand() throws Exception {
+        final Function<Integer, Integer> f = x -> x + 1;
+        for (final boolean ordered : new boolean[]{false, true}) {
+            try (ParallelMapperImpl mapper = new ParallelMapperImpl(3)) {
+                final List<Integer> args = range(1000);
+                final Recorder<Integer> recorder = new Recorder<>(1);
+                mapper.mapPublisher(f, args, ordered).subscribe(recorder);
+                final Flow.Subscription subscription = recorder.subscription.get();
+                Thread.sleep(200);
+                assertEquals(1, recorder.received.size());
+                subscription.request(5);
+                Thread.sleep(200);
+                assertEquals(6, recorder.received.size());
+                assertFalse(recorder.end.isDone());
+                subscription.request(Long.MAX_VALUE);
+                recorder.await();
+                final List<Integer> received = new ArrayList<>(recorder.received);
+                if (!ordered) {
+                    Collections.sort(received);
+                }
+                assertEquals(expected(f, args), received);
+            }
+        }
+    }
+
+    @Test(timeout = 60_000)
+    public void publisherSignals() throws Exception {
+        try (ParallelMapperImpl mapper = new ParallelMapperImpl(2)) {
+            final Recorder<Integer> empty = new Recorder<>(1);
+            mapper.mapPublisher(Function.<Integer>identity(), List.<Integer>of(), true).subscribe(empty);
+            empty.await();
+            assertTrue(empty.received.isEmpty());
+
+            final Recorder<Integer> invalid = new Recorder<>(0);
+            mapper.mapPublisher(Function.<Integer>identity(), range(100), true).subscribe(invalid);
+            try {
+                invalid.await();
+                fail("request(0) is accepted");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IllegalArgumentException);
+            }
+
+            final Recorder<Integer> failed = new Recorder<>(Long.MAX_VALUE);
+            mapper.mapPublisher((Integer x) -> {
+                if (x == 50) {
+                    throw new IllegalStateException("50");
+                }
+                return x;
+            }, range(100), true).subscribe(failed);
+            try {
+                failed.await();
+                fail("exception of the function is not published");
+            } catch (ExecutionException e) {
+                assertEquals("50", e.getCause().getMessage());
+            }
+        }
+    }
+
+    @Test(timeout = 60_000)
+    public void publisherCancellationSkipsRanges() throws Exception {
+        try (ParallelMapperImpl mapper = new ParallelMapperImpl(2)) {
+            final AtomicInteger computed = new AtomicInteger();
+            final Recorder<Integer> recorder = new Recorder<>(1);
+            mapper.mapPublisher((Integer x) -> {
+                computed.incrementAndGet();
+                return sleep(x, 1);
+            }, range(2000), true).subscribe(recorder);
+            recorder.subscription.get().cancel();
+            Thread.sleep(500);
+            final int after = computed.get();
+            assertTrue("skipped ranges are computed: " + after, after < 2000);
+            Thread.sleep(100);
+            assertEquals(after, computed.get());
+            assertFalse(recorder.end.isDone());
+            assertTrue(mapper.getCallStatistics().isEmpty());
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package ru.ifmo.rain.maksimov.concurrent;
+
+import info.kgeorgiy.java.advanced.mapper.ParallelMapper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import static ru.ifmo.rain.maksimov.utils.ConcurrentUtils.*;
+
+/**
+ * Implementation of {@link ParallelMapper} for blocking functions.
+ * Every argument (or range of arguments) is computed by its own thread, and the number of
+ * arguments computed at the same time is limited by a count of permits instead of a count of threads.
+ * Threads are virtual if the runtime supports them, otherwise they are taken from a cached pool.
+ *
+ * @author koalaa13 (github.com/koalaa13)
+ */
+public class VirtualParallelMapper implements ParallelMapper {
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final int chunkSize;
+    private final Set<Job<?, ?>> running = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
+
+    private static class Job<T, R> {
+        private final Function<? super T, ? extends R> f;
+        private final List<? extends T> args;
+        private final Object[] results;
+        private final CountDownLatch done;
+        private final List<Part> parts = new ArrayList<>();
+        private volatile Throwable error;
+
+        Job(Function<? super T, ? extends R> f, List<? extends T> args, int chunks) {
+            this.f = f;
+            this.args = args;
+            results = new Object[args.size()];
+            done = new CountDownLatch(chunks);
+        }
+
+        void run(final int from, final int to) {
+            try {
+                for (int i = from; i < to && error == null; i++) {
+                    results[i] = f.apply(args.get(i));
+                }
+            } catch (RuntimeException | Error e) {
+                fail(e);
+            }
+        }
+
+        void fail(Throwable e) {
+            if (error == null) {
+                error = e;
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        List<R> get() throws InterruptedException {
+            done.await();
+            final Throwable e = error;
+            if (e instanceof RuntimeException) {
+                throw (RuntimeException) e;
+            }
+            if (e instanceof Error) {
+                throw (Error) e;
+            }
+            return (List<R>) Arrays.asList(results);
+        }
+    }
+
+    // the permit is released by the thread computing the part, so a part cancelled while running
+    // keeps it until its function returns, and by done() only if the part is cancelled before start
+    private class Part extends FutureTask<Void> {
+        private final Job<?, ?> job;
+        private final AtomicBoolean started = new AtomicBoolean();
+
+        Part(Job<?, ?> job, int from, int to) {
+            super(() -> job.run(from, to), null);
+            this.job = job;
+        }
+
+        @Override
+        public void run() {
+            if (!started.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                super.run();
+            } finally {
+                permits.release();
+            }
+        }
+
+        @Override
+        protected void done() {
+            if (started.compareAndSet(false, true)) {
+                permits.release();
+            }
+            job.done.countDown();
+        }
+    }
+
+    /**
+     * Constructor computing every argument by its own thread
+     *
+     * @param permits maximal number of arguments computed at the same time
+     */
+    public VirtualParallelMapper(final int permits) {
+        this(permits, 1);
+    }
+
+    /**
+     * Constructor with given number of consecutive arguments computed by one thread
+     *
+     * @param permits   maximal number of ranges computed at the same time
+     * @param chunkSize number of arguments in every range
+     */
+    public VirtualParallelMapper(final int permits, final int chunkSize) {
+        checkThreads(permits);
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size should be positive");
+        }
+        this.permits = new Semaphore(permits);
+        this.chunkSize = chunkSize;
+        executor = newExecutor();
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor is looked up reflectively, as it is missing before Java 21
+    private static ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    @Override
+    public <T, R> List<R> map(Function<? super T, ? extends R> f, List<? extends T> args) throws InterruptedException {
+        if (closed) {
+            throw new IllegalStateException("Mapper is closed");
+        }
+        final int size = args.size();
+        final int chunks = (int) (((long) size + chunkSize - 1) / chunkSize);
+        final Job<T, R> job = new Job<>(f, args, chunks);
+        running.add(job);
+        try {
+            for (int i = 0; i < chunks; i++) {
+                final int from = i * chunkSize;
+                final Part part = new Part(job, from, from + Math.min(chunkSize, size - from));
+                permits.acquire();
+                job.parts.add(part);
+                try {
+                    executor.execute(part);
+                } catch (RejectedExecutionException e) {
+                    part.cancel(false);
+                    throw new IllegalStateException("Mapper is closed");
+                }
+            }
+            return job.get();
+        } catch (InterruptedException | RuntimeException e) {
+            job.fail(e);
+            job.parts.forEach(part -> part.cancel(true));
+            throw e;
+        } finally {
+            running.remove(job);
+        }
+    }
+
+    /**
+     * Interrupts computing threads. Calls waiting for results fail with {@link IllegalStateException}
+     */
+    @Override
+    public void close() {
+        closed = true;
+        final IllegalStateException e = new IllegalStateException("Mapper is closed");
+        running.forEach(job -> job.fail(e));
+        executor.shutdownNow().forEach(runnable -> ((Part) runnable).cancel(false));
+    }
+}
@@ -0,0 +1,115 @@
+package ru.ifmo.rain.maksimov.concurrent;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+
+public class VirtualParallelMapperTests {
+    private final AtomicInteger current = new AtomicInteger();
+    private final AtomicInteger peak = new AtomicInteger();
+
+    private static List<Integer> range(int size) {
+        return IntStream.range(0, size).boxed().collect(Collectors.toList());
+    }
+
+    // blocks for given time ignoring interruptions, counting functions computed at the same time
+    private Integer block(Integer x, long millis) {
+        peak.accumulateAndGet(current.incrementAndGet(), Math::max);
+        final long end = System.nanoTime() + millis * 1_000_000;
+        for (long left = millis; left > 0; left = (end - System.nanoTime()) / 1_000_000) {
+            try {
+                Thread.sleep(left);
+            } catch (InterruptedException ignored) {
+            }
+        }
+        current.decrementAndGet();
+        return x;
+    }
+
+    @Test(timeout = 60_000)
+    public void mapsInOrderOfArguments() throws InterruptedException {
+        for (final int chunkSize : new int[]{1, 3, 1000}) {
+            try (VirtualParallelMapper mapper = new VirtualParallelMapper(4, chunkSize)) {
+                for (final int size : new int[]{0, 1, 10, 1000}) {
+                    final List<Integer> args = range(size);
+                    assertEquals(args.stream().map(x -> x * 5).collect(Collectors.toList()), mapper.map(x -> x * 5, args));
+                }
+            }
+        }
+    }
+
+    @Test(timeout = 60_000)
+    public void neverExceedsPermits() throws InterruptedException {
+        for (final int permits : new int[]{1, 3, 8}) {
+            try (VirtualParallelMapper mapper = new VirtualParallelMapper(permits)) {
+                peak.set(0);
+                final List<Integer> args = range(40);
+                assertEquals(args, mapper.map(x -> block(x, 5), args));
+                assertTrue("permits " + permits + ", peak " + peak.get(), peak.get() <= permits);
+                assertTrue("functions are not computed in parallel", permits == 1 || peak.get() > 1);
+            }
+        }
+    }
+
+    @Test(timeout = 60_000)
+    public void permitsAreKeptByPartsRunningAfterInterruption() throws InterruptedException {
+        try (VirtualParallelMapper mapper = new VirtualParallelMapper(3)) {
+            final Thread caller = Thread.currentThread();
+            final Thread interrupter = new Thread(() -> {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException ignored) {
+                }
+                caller.interrupt();
+            });
+            interrupter.start();
+            try {
+                mapper.map(x -> block(x, 300), range(12));
+                fail("interruption is ignored");
+            } catch (InterruptedException ignored) {
+            }
+            interrupter.join();
+            // parts of the interrupted call are still running and counted
+            peak.set(0);
+            final List<Integer> args = range(12);
+            assertEquals(args, mapper.map(x -> block(x, 300), args));
+            assertTrue("peak " + peak.get(), peak.get() <= 3);
+        }
+    }
+
+    @Test(timeout = 60_000)
+    public void functionThrows() throws InterruptedException {
+        try (VirtualParallelMapper mapper = new VirtualParallelMapper(4)) {
+            try {
+                mapper.map(x -> {
+                    if (x == 50) {
+                        throw new IllegalArgumentException("50");
+                    }
+                    return x;
+                }, range(100));
+                fail("exception of the function is not thrown");
+            } catch (IllegalArgumentException e) {
+                assertEquals("50", e.getMessage());
+            }
+            final List<Integer> args = range(100);
+            assertEquals(args, mapper.map(Function.identity(), args));
+        }
+    }
+
+    @Test(timeout = 60_000)
+    public void closedMapperRejectsCalls() throws InterruptedException {
+        final VirtualParallelMapper mapper = new VirtualParallelMapper(2);
+        mapper.close();
+        try {
+            mapper.map(Function.identity(), range(10));
+            fail("closed mapper accepted a call");
+        } catch (IllegalStateException ignored) {
+        }
+    }
+}
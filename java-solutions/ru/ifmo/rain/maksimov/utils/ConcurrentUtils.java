@@ -4,7 +4,9 @@ import ru.ifmo.rain.maksimov.concurrent.IterativeParallelism;
 import ru.ifmo.rain.maksimov.concurrent.ParallelMapperImpl;
 
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.stream.Stream;
@@ -87,6 +89,30 @@ public class ConcurrentUtils {
         }
     }
 
+    /**
+     * Waits for result of given {@link Future future}.
+     * If the task has thrown an unchecked exception, rethrows it on the calling thread
+     *
+     * @param future future to wait for
+     * @param <V>    typename for result
+     * @return result of the task
+     * @throws InterruptedException when current thread was interrupted while waiting
+     */
+    public static <V> V getResult(Future<V> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException("Task failed", cause);
+        }
+    }
+
     public static void closeExecutorService(ExecutorService service) {
         closeExecutorService(service, 5, TimeUnit.SECONDS);
     }
@@ -47,4 +47,20 @@ public class Helper {
     public static String getOutputFormat(String filename, int hash) {
         return String.format("%08x", hash) + ' ' + filename + System.lineSeparator();
     }
+
+    /**
+     * Get hash of file as {@link String} in special format, hash is written as hex digits
+     * of every byte
+     *
+     * @param filename {@link String} filename
+     * @param hash hash of file with this filename
+     * @return representation of hash
+     */
+    public static String getOutputFormat(String filename, byte[] hash) {
+        StringBuilder out = new StringBuilder(hash.length * 2 + filename.length() + 2);
+        for (byte b : hash) {
+            out.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return out.append(' ').append(filename).append(System.lineSeparator()).toString();
+    }
 }
@@ -0,0 +1,54 @@
+package ru.ifmo.rain.maksimov.walk;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * {@link HashFunction} backed by {@link MessageDigest}
+ */
+class DigestHashFunction implements HashFunction {
+    private final String name;
+    private final String algorithm;
+    private final int length;
+
+    DigestHashFunction(String name, String algorithm) {
+        this.name = name;
+        this.algorithm = algorithm;
+        length = newDigest().getDigestLength();
+    }
+
+    private MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Algorithm " + algorithm + " is not supported", e);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public int getLength() {
+        return length;
+    }
+
+    @Override
+    public Hasher newHasher() {
+        final MessageDigest digest = newDigest();
+        return new Hasher() {
+            @Override
+            public void update(ByteBuffer buf) {
+                digest.update(buf.duplicate());
+            }
+
+            @Override
+            public byte[] digest() {
+                return digest.digest();
+            }
+        };
+    }
+}
@@ -0,0 +1,43 @@
+package ru.ifmo.rain.maksimov.walk;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 64-bit FNV-1a hash
+ */
+class Fnv1a64HashFunction implements HashFunction {
+    private static final long PRIME = 0x100000001b3L;
+    private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    @Override
+    public String getName() {
+        return "fnv1a64";
+    }
+
+    @Override
+    public int getLength() {
+        return Long.BYTES;
+    }
+
+    @Override
+    public Hasher newHasher() {
+        return new Hasher() {
+            private long hash = OFFSET_BASIS;
+
+            @Override
+            public void update(ByteBuffer buf) {
+                long h = hash;
+                for (int i = buf.position(), end = buf.limit(); i < end; ++i) {
+                    h ^= buf.get(i) & 0xff;
+                    h *= PRIME;
+                }
+                hash = h;
+            }
+
+            @Override
+            public byte[] digest() {
+                return ByteBuffer.allocate(Long.BYTES).putLong(hash).array();
+            }
+        };
+    }
+}
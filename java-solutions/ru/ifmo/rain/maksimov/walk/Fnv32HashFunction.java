@@ -0,0 +1,70 @@
+package ru.ifmo.rain.maksimov.walk;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 32-bit FNV hash as it is defined by Walk homework: state is multiplied by the prime
+ * before the next byte is mixed in.
+ * <p>
+ * Eight bytes are read at once and mixed in by an unrolled loop, the rest of the buffer
+ * is hashed by {@link #reference(int, ByteBuffer, int, int)}, byte by byte.
+ */
+class Fnv32HashFunction implements HashFunction {
+    static final int PRIME = 0x01000193;
+    static final int OFFSET_BASIS = 0x811c9dc5;
+
+    @Override
+    public String getName() {
+        return "fnv32";
+    }
+
+    @Override
+    public int getLength() {
+        return Integer.BYTES;
+    }
+
+    @Override
+    public Hasher newHasher() {
+        return new Hasher() {
+            private int hash = OFFSET_BASIS;
+
+            @Override
+            public void update(ByteBuffer buf) {
+                hash = Fnv32HashFunction.update(hash, buf);
+            }
+
+            @Override
+            public byte[] digest() {
+                return new byte[]{(byte) (hash >>> 24), (byte) (hash >>> 16), (byte) (hash >>> 8), (byte) hash};
+            }
+        };
+    }
+
+    static int update(int hash, ByteBuffer buf) {
+        final int end = buf.limit();
+        int i = buf.position();
+        if (buf.order() == ByteOrder.BIG_ENDIAN) {
+            for (; i + Long.BYTES <= end; i += Long.BYTES) {
+                final long w = buf.getLong(i);
+                hash = hash * PRIME ^ (int) (w >>> 56);
+                hash = hash * PRIME ^ ((int) (w >>> 48) & 0xff);
+                hash = hash * PRIME ^ ((int) (w >>> 40) & 0xff);
+                hash = hash * PRIME ^ ((int) (w >>> 32) & 0xff);
+                hash = hash * PRIME ^ ((int) (w >>> 24) & 0xff);
+                hash = hash * PRIME ^ ((int) (w >>> 16) & 0xff);
+                hash = hash * PRIME ^ ((int) (w >>> 8) & 0xff);
+                hash = hash * PRIME ^ ((int) w & 0xff);
+            }
+        }
+        return reference(hash, buf, i, end);
+    }
+
+    static int reference(int hash, ByteBuffer buf, int from, int to) {
+        for (int i = from; i < to; ++i) {
+            hash *= PRIME;
+            hash ^= buf.get(i) & 0xff;
+        }
+        return hash;
+    }
+}
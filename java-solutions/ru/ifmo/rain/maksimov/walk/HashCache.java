@@ -0,0 +1,179 @@
+package ru.ifmo.rain.maksimov.walk;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static ru.ifmo.rain.maksimov.utils.Helper.log;
+
+/**
+ * Persistent cache of file hashes keyed on file path.
+ * Cached hash is used only if size, last modified time and file key of the file are the same
+ * as they were when the hash was calculated.
+ * <p>
+ * File format: magic, version, name of the hash function, number of entries and entries sorted by path.
+ * Every path is stored as a length of the prefix shared with the previous path and the rest of it.
+ * Only entries of files met during the current walk are saved.
+ */
+class HashCache {
+    private final static int MAGIC = 0x57414c4b;
+    private final static int VERSION = 2;
+
+    private final Path file;
+    private final HashFunction function;
+    private final Map<String, Entry> loaded;
+    private final Map<String, Entry> used = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private static class Entry {
+        private final long size;
+        private final long modified;
+        private final String fileKey;
+        private final byte[] hash;
+
+        private Entry(long size, long modified, String fileKey, byte[] hash) {
+            this.size = size;
+            this.modified = modified;
+            this.fileKey = fileKey;
+            this.hash = hash;
+        }
+
+        private Entry(BasicFileAttributes attrs, byte[] hash) {
+            this(attrs.size(), attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS),
+                    Objects.toString(attrs.fileKey(), ""), hash);
+        }
+
+        private boolean matches(BasicFileAttributes attrs) {
+            return size == attrs.size()
+                    && modified == attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS)
+                    && fileKey.equals(Objects.toString(attrs.fileKey(), ""));
+        }
+    }
+
+    private HashCache(Path file, HashFunction function, Map<String, Entry> loaded) {
+        this.file = file;
+        this.function = function;
+        this.loaded = loaded;
+    }
+
+    /**
+     * Reads cache from given file. Missing or broken file or file with hashes
+     * of another function gives an empty cache.
+     *
+     * @param file     cache file
+     * @param function function to hash files with
+     * @return loaded cache
+     */
+    static HashCache load(Path file, HashFunction function) {
+        Map<String, Entry> entries = new HashMap<>();
+        if (Files.exists(file)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                    throw new IOException("Unsupported cache format");
+                }
+                if (!in.readUTF().equals(function.getName())) {
+                    throw new IOException("Cache contains hashes of another function");
+                }
+                String path = "";
+                for (int count = in.readInt(); count > 0; count--) {
+                    path = path.substring(0, in.readUnsignedShort()) + in.readUTF();
+                    final long size = in.readLong();
+                    final long modified = in.readLong();
+                    final String fileKey = in.readUTF();
+                    final byte[] hash = new byte[function.getLength()];
+                    in.readFully(hash);
+                    entries.put(path, new Entry(size, modified, fileKey, hash));
+                }
+            } catch (IOException | StringIndexOutOfBoundsException e) {
+                log("Can not read hash cache " + file + ", ignoring it", e);
+                entries = new HashMap<>();
+            }
+        }
+        return new HashCache(file, function, entries);
+    }
+
+    /**
+     * Returns hash of given file, calculating it only if the file has changed
+     *
+     * @param path  file to hash
+     * @param attrs attributes of the file
+     * @return hash of the file or zero hash if it can not be read
+     */
+    byte[] hash(Path path, BasicFileAttributes attrs) {
+        final String key = path.toAbsolutePath().toString();
+        Entry entry = loaded.get(key);
+        if (entry != null && entry.matches(attrs)) {
+            hits.increment();
+        } else {
+            misses.increment();
+            try {
+                entry = new Entry(attrs, RecursiveWalk.fileHash(path, function));
+            } catch (IOException e) {
+                log("IOException while hashing file " + path, e);
+                return new byte[function.getLength()];
+            }
+        }
+        used.put(key, entry);
+        return entry.hash;
+    }
+
+    /**
+     * Atomically replaces cache file with entries of files hashed since the cache was loaded
+     *
+     * @throws IOException if the cache can not be written
+     */
+    void save() throws IOException {
+        final Path dir = file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        final Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(function.getName());
+                out.writeInt(used.size());
+                String prev = "";
+                for (Map.Entry<String, Entry> e : new TreeMap<>(used).entrySet()) {
+                    final String path = e.getKey();
+                    final int common = commonPrefix(prev, path);
+                    out.writeShort(common);
+                    out.writeUTF(path.substring(common));
+                    out.writeLong(e.getValue().size);
+                    out.writeLong(e.getValue().modified);
+                    out.writeUTF(e.getValue().fileKey);
+                    out.write(e.getValue().hash);
+                    prev = path;
+                }
+            }
+            try {
+                Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static int commonPrefix(String a, String b) {
+        final int max = Math.min(Math.min(a.length(), b.length()), 0xffff);
+        int i = 0;
+        while (i < max && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+
+    long getHits() {
+        return hits.sum();
+    }
+
+    long getMisses() {
+        return misses.sum();
+    }
+}
@@ -0,0 +1,49 @@
+package ru.ifmo.rain.maksimov.walk;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Hash function used by {@link RecursiveWalk} to hash file contents
+ */
+public interface HashFunction {
+    /**
+     * Returns name of the function, the one to pass to {@link RecursiveWalk} with {@code -hash}
+     *
+     * @return name of the function
+     */
+    String getName();
+
+    /**
+     * Returns length of the hash in bytes
+     *
+     * @return length of the hash
+     */
+    int getLength();
+
+    /**
+     * Creates a new {@link Hasher} in the initial state
+     *
+     * @return new {@link Hasher}
+     */
+    Hasher newHasher();
+
+    /**
+     * State of the hash function while hashing a single file
+     */
+    interface Hasher {
+        /**
+         * Updates state with bytes between position and limit of given buffer.
+         * Position and limit of the buffer are left unchanged.
+         *
+         * @param buf bytes to hash
+         */
+        void update(ByteBuffer buf);
+
+        /**
+         * Returns the hash of all bytes passed to {@link #update(ByteBuffer)}
+         *
+         * @return hash, {@link #getLength()} bytes big-endian
+         */
+        byte[] digest();
+    }
+}
@@ -0,0 +1,105 @@
+package ru.ifmo.rain.maksimov.walk;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class HashFunctionTests {
+    private final Random random = new Random(3046);
+
+    private static String hex(byte[] hash) {
+        final StringBuilder sb = new StringBuilder();
+        for (byte b : hash) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    private static String hash(HashFunction function, String data) {
+        final HashFunction.Hasher hasher = function.newHasher();
+        hasher.update(ByteBuffer.wrap(data.getBytes(StandardCharsets.US_ASCII)));
+        return hex(hasher.digest());
+    }
+
+    private ByteBuffer randomBuffer(int length, boolean direct) {
+        final int position = random.nextInt(8);
+        final ByteBuffer buf = direct
+                ? ByteBuffer.allocateDirect(position + length + random.nextInt(8))
+                : ByteBuffer.allocate(position + length + random.nextInt(8));
+        for (int i = 0; i < buf.capacity(); i++) {
+            buf.put(i, (byte) random.nextInt());
+        }
+        return buf.limit(position + length).position(position);
+    }
+
+    @Test
+    public void fnv32UpdateMatchesReference() {
+        for (int length = 0; length <= 17; length++) {
+            for (int i = 0; i < 100; i++) {
+                final ByteBuffer buf = randomBuffer(length, i % 2 == 0);
+                final int position = buf.position();
+                final int limit = buf.limit();
+                final int hash = random.nextInt();
+                assertEquals("length " + length + ", position " + position,
+                        Fnv32HashFunction.reference(hash, buf, position, limit),
+                        Fnv32HashFunction.update(hash, buf));
+                assertEquals(position, buf.position());
+                assertEquals(limit, buf.limit());
+            }
+        }
+    }
+
+    @Test
+    public void fnv32DigestMatchesReference() {
+        for (int length = 0; length <= 17; length++) {
+            final ByteBuffer buf = randomBuffer(length, false);
+            final HashFunction.Hasher hasher = HashFunctions.FNV32.newHasher();
+            hasher.update(buf);
+            final int expected = Fnv32HashFunction.reference(Fnv32HashFunction.OFFSET_BASIS, buf, buf.position(), buf.limit());
+            assertEquals(String.format("%08x", expected), hex(hasher.digest()));
+        }
+    }
+
+    @Test
+    public void fnv32KnownAnswers() {
+        assertEquals("811c9dc5", hash(HashFunctions.FNV32, ""));
+        assertEquals("050c5d7e", hash(HashFunctions.FNV32, "a"));
+        assertEquals("31f0b262", hash(HashFunctions.FNV32, "foobar"));
+    }
+
+    @Test
+    public void fnv1a64KnownAnswers() {
+        assertEquals("cbf29ce484222325", hash(HashFunctions.FNV1A64, ""));
+        assertEquals("af63dc4c8601ec8c", hash(HashFunctions.FNV1A64, "a"));
+        assertEquals("85944171f73967e8", hash(HashFunctions.FNV1A64, "foobar"));
+    }
+
+    @Test
+    public void xxHash64KnownAnswers() {
+        assertEquals("ef46db3751d8e999", hash(HashFunctions.XXHASH64, ""));
+        assertEquals("d24ec4f1a98c6e5b", hash(HashFunctions.XXHASH64, "a"));
+        assertEquals("44bc2cf5ad770999", hash(HashFunctions.XXHASH64, "abc"));
+        assertEquals("fbcea83c8a378bf1", hash(HashFunctions.XXHASH64, "Nobody inspects the spammish repetition"));
+    }
+
+    @Test
+    public void updatesInPartsMatchWholeUpdate() {
+        for (HashFunction function : new HashFunction[]{HashFunctions.FNV32, HashFunctions.FNV1A64, HashFunctions.XXHASH64}) {
+            for (int i = 0; i < 100; i++) {
+                final ByteBuffer buf = randomBuffer(random.nextInt(200), i % 2 == 0);
+                final HashFunction.Hasher whole = function.newHasher();
+                whole.update(buf);
+                final HashFunction.Hasher parts = function.newHasher();
+                for (int from = buf.position(), to; from < buf.limit(); from = to) {
+                    to = Math.min(buf.limit(), from + 1 + random.nextInt(40));
+                    parts.update(buf.duplicate().limit(to).position(from));
+                }
+                assertEquals(function.getName(), hex(whole.digest()), hex(parts.digest()));
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package ru.ifmo.rain.maksimov.walk;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Hash functions available to {@link RecursiveWalk}
+ */
+public class HashFunctions {
+    /**
+     * 32-bit FNV hash, the default one
+     */
+    public static final HashFunction FNV32 = new Fnv32HashFunction();
+    /**
+     * 64-bit FNV-1a hash
+     */
+    public static final HashFunction FNV1A64 = new Fnv1a64HashFunction();
+    /**
+     * 64-bit xxHash with zero seed
+     */
+    public static final HashFunction XXHASH64 = new XxHash64HashFunction();
+    /**
+     * SHA-256 provided by {@link java.security.MessageDigest}
+     */
+    public static final HashFunction SHA256 = new DigestHashFunction("sha256", "SHA-256");
+
+    private static final Map<String, HashFunction> FUNCTIONS = Stream.of(FNV32, FNV1A64, XXHASH64, SHA256)
+            .collect(Collectors.toUnmodifiableMap(HashFunction::getName, Function.identity()));
+
+    private HashFunctions() {
+    }
+
+    /**
+     * Returns hash function with given name
+     *
+     * @param name name of the function
+     * @return {@link HashFunction} or {@code null} if there is no function with given name
+     */
+    public static HashFunction forName(String name) {
+        return FUNCTIONS.get(name);
+    }
+
+    /**
+     * Returns names of all available hash functions
+     *
+     * @return {@link Set} of names
+     */
+    public static Set<String> getNames() {
+        return FUNCTIONS.keySet();
+    }
+}
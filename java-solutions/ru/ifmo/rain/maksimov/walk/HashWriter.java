@@ -0,0 +1,63 @@
+package ru.ifmo.rain.maksimov.walk;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Writes walk results in the order files are passed to it.
+ * Hashes every file on the calling thread, using {@link HashCache} if it is given.
+ */
+class HashWriter implements Closeable {
+    protected final ResultWriter writer;
+    protected final HashFunction function;
+    // hash written for files that can not be read, it is never modified
+    protected final byte[] zeroHash;
+    private final HashCache cache;
+
+    HashWriter(ResultWriter writer, HashFunction function, HashCache cache) {
+        this.writer = writer;
+        this.function = function;
+        this.cache = cache;
+        zeroHash = new byte[function.getLength()];
+    }
+
+    /**
+     * Hashes given file and writes the result line
+     *
+     * @param file  file to hash
+     * @param attrs attributes of the file
+     * @throws IOException if an error occurred while writing the result
+     */
+    void file(Path file, BasicFileAttributes attrs) throws IOException {
+        writer.writeResult(hash(file, attrs), file.toString());
+    }
+
+    protected byte[] hash(Path file, BasicFileAttributes attrs) {
+        // attributes of a symbolic link say nothing about the content of its target
+        return cache == null || attrs.isSymbolicLink() ? RecursiveWalk.hash(file, function) : cache.hash(file, attrs);
+    }
+
+    /**
+     * Writes zero hash line for the path that can not be walked
+     *
+     * @param filename path as it was given in the input file
+     * @throws IOException if an error occurred while writing the result
+     */
+    void failed(String filename) throws IOException {
+        writer.writeResult(zeroHash, filename);
+    }
+
+    /**
+     * Writes all pending results
+     *
+     * @throws IOException if an error occurred while writing the results
+     */
+    void finish() throws IOException {
+    }
+
+    @Override
+    public void close() throws IOException {
+    }
+}
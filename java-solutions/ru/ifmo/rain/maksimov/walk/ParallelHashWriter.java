@@ -0,0 +1,99 @@
+package ru.ifmo.rain.maksimov.walk;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static ru.ifmo.rain.maksimov.utils.ConcurrentUtils.checkThreads;
+import static ru.ifmo.rain.maksimov.utils.ConcurrentUtils.closeExecutorService;
+
+/**
+ * {@link HashWriter} that hashes files on a pool of worker threads.
+ * At most {@code capacity} results are in flight, the walk waits for the oldest one
+ * when the queue is full. Results are written in the order files were passed.
+ */
+class ParallelHashWriter extends HashWriter {
+    private final static int QUEUE_FACTOR = 64;
+
+    private final ExecutorService workers;
+    private final Queue<Result> pending = new ArrayDeque<>();
+    private final int capacity;
+
+    private static class Result {
+        private final String filename;
+        private final Future<byte[]> hash;
+
+        private Result(String filename, Future<byte[]> hash) {
+            this.filename = filename;
+            this.hash = hash;
+        }
+    }
+
+    ParallelHashWriter(ResultWriter writer, HashFunction function, HashCache cache, int threads) {
+        this(writer, function, cache, threads, threads * QUEUE_FACTOR);
+    }
+
+    ParallelHashWriter(ResultWriter writer, HashFunction function, HashCache cache, int threads, int capacity) {
+        super(writer, function, cache);
+        checkThreads(threads);
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("queue capacity should be > 0");
+        }
+        this.capacity = capacity;
+        workers = Executors.newFixedThreadPool(threads);
+    }
+
+    @Override
+    void file(Path file, BasicFileAttributes attrs) throws IOException {
+        add(new Result(file.toString(), workers.submit(() -> hash(file, attrs))));
+    }
+
+    @Override
+    void failed(String filename) throws IOException {
+        add(new Result(filename, CompletableFuture.completedFuture(zeroHash)));
+    }
+
+    private void add(Result result) throws IOException {
+        if (pending.size() >= capacity) {
+            writeFirst();
+        }
+        pending.add(result);
+        while (!pending.isEmpty() && pending.peek().hash.isDone()) {
+            writeFirst();
+        }
+    }
+
+    private void writeFirst() throws IOException {
+        try {
+            final Result result = pending.remove();
+            writer.writeResult(result.hash.get(), result.filename);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for hash");
+        } catch (ExecutionException e) {
+            throw new IOException("Error occurred while hashing", e.getCause());
+        }
+    }
+
+    @Override
+    void finish() throws IOException {
+        while (!pending.isEmpty()) {
+            writeFirst();
+        }
+    }
+
+    @Override
+    public void close() {
+        pending.forEach(result -> result.hash.cancel(true));
+        pending.clear();
+        closeExecutorService(workers);
+    }
+}
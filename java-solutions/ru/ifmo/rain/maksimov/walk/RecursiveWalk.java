@@ -1,38 +1,117 @@
 package ru.ifmo.rain.maksimov.walk;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
 
 import static ru.ifmo.rain.maksimov.utils.Helper.getOutputFormat;
 import static ru.ifmo.rain.maksimov.utils.Helper.log;
 
 public class RecursiveWalk {
-    private final static int BUFFER_SIZE = 8192;
+    private final static int BUFFER_SIZE = 1 << 16;
+    private final static long MAP_THRESHOLD = 1 << 22;
+    private final static long MAP_CHUNK_SIZE = 1 << 30;
+    private final static ThreadLocal<ByteBuffer> BUFFERS =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+    private final static String USAGE =
+            "Invalid arguments. Use RecursiveWalk <input file> <output file> "
+                    + "[-threads <number of hashing threads>] [-cache <hash cache file>] "
+                    + "[-hash " + String.join("|", HashFunctions.getNames()) + "] "
+                    + "[-buffer <output buffer size in chars>]";
+    private final static Set<String> OPTIONS = Set.of("-threads", "-cache", "-hash", "-buffer");
 
     public static String hash(String filename) {
-        final int PRIME_KEY = 0x01000193;
-        int res = 0x811c9dc5;
-        try (InputStream fileInputStream = Files.newInputStream(Paths.get(filename))) {
-            byte[] buf = new byte[BUFFER_SIZE];
-            for (int readed; (readed = fileInputStream.read(buf, 0, BUFFER_SIZE)) >= 0; ) {
-                for (int i = 0; i < readed; ++i) {
-                    res *= PRIME_KEY;
-                    res ^= buf[i] & 0xff;
+        return getOutputFormat(filename, hash(Paths.get(filename), HashFunctions.FNV32));
+    }
+
+    static byte[] hash(Path file, HashFunction function) {
+        try {
+            return fileHash(file, function);
+        } catch (IOException e) {
+            log("IOException while hashing file " + file, e);
+            return new byte[function.getLength()];
+        }
+    }
+
+    static byte[] fileHash(Path file, HashFunction function) throws IOException {
+        final HashFunction.Hasher hasher = function.newHasher();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size >= MAP_THRESHOLD) {
+                for (long pos = 0; pos < size; pos += MAP_CHUNK_SIZE) {
+                    final ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(MAP_CHUNK_SIZE, size - pos));
+                    try {
+                        hasher.update(mapped);
+                    } catch (InternalError e) {
+                        // access to pages of a mapped file truncated by someone else faults instead of throwing IOException
+                        throw new IOException("File was truncated while reading: " + file, e);
+                    }
+                }
+            } else {
+                final ByteBuffer buf = BUFFERS.get();
+                for (buf.clear(); channel.read(buf) >= 0; buf.clear()) {
+                    hasher.update(buf.flip());
                 }
             }
-        } catch (IOException e) {
-            log("IOException while hashing file " + filename, e);
-            return getOutputFormat(filename, 0);
         }
-        return getOutputFormat(filename, res);
+        return hasher.digest();
     }
 
     public static void main(String[] args) {
-        if (args == null || args.length != 2 || args[0] == null || args[1] == null) {
-            log("Invalid arguments. Use RecursiveWalk <input file> <output file>");
+        if (args == null || args.length < 2 || args[0] == null || args[1] == null) {
+            log(USAGE);
             return;
         }
+        final Map<String, String> options = new HashMap<>();
+        for (int i = 2; i < args.length; i += 2) {
+            if (!OPTIONS.contains(args[i]) || i + 1 == args.length || args[i + 1] == null) {
+                log(USAGE);
+                return;
+            }
+            options.put(args[i], args[i + 1]);
+        }
+        int threads;
+        try {
+            threads = Integer.parseInt(options.getOrDefault("-threads", "0"));
+        } catch (NumberFormatException e) {
+            log("Invalid number of threads", e);
+            return;
+        }
+        if (threads < 0) {
+            log("Number of threads should be >= 0");
+            return;
+        }
+        final HashFunction function = HashFunctions.forName(options.getOrDefault("-hash", HashFunctions.FNV32.getName()));
+        if (function == null) {
+            log("Unknown hash function: " + options.get("-hash"));
+            return;
+        }
+        int bufferSize;
+        try {
+            bufferSize = Integer.parseInt(options.getOrDefault("-buffer", Integer.toString(ResultWriter.DEFAULT_BUFFER_SIZE)));
+        } catch (NumberFormatException e) {
+            log("Invalid output buffer size", e);
+            return;
+        }
+        if (bufferSize < ResultWriter.MIN_BUFFER_SIZE) {
+            log("Output buffer size should be >= " + ResultWriter.MIN_BUFFER_SIZE);
+            return;
+        }
+        HashCache cache = null;
+        if (options.containsKey("-cache")) {
+            try {
+                cache = HashCache.load(Paths.get(options.get("-cache")), function);
+            } catch (InvalidPathException e) {
+                log("Invalid cache file: " + options.get("-cache"), e);
+                return;
+            }
+        }
         Path in, out;
         try {
             in = Paths.get(args[0]);
@@ -58,24 +137,29 @@ public class RecursiveWalk {
         }
 
         try (BufferedReader reader = Files.newBufferedReader(in)) {
-            try (BufferedWriter writer = Files.newBufferedWriter(out)) {
+            try (ResultWriter writer = new ResultWriter(
+                    new OutputStreamWriter(Files.newOutputStream(out), StandardCharsets.UTF_8.newEncoder()), bufferSize);
+                 HashWriter hashWriter = threads == 0
+                         ? new HashWriter(writer, function, cache)
+                         : new ParallelHashWriter(writer, function, cache, threads)) {
+                MyVisitor visitor = new MyVisitor(hashWriter);
                 String filename = reader.readLine();
                 while (filename != null) {
                     try {
-                        MyVisitor visitor = new MyVisitor(writer);
                         Files.walkFileTree(Paths.get(filename), visitor);
                     } catch (FileNotFoundException e) {
                         log("No such file: " + filename, e);
-                        writer.write(getOutputFormat(filename, 0));
+                        hashWriter.failed(filename);
                     } catch (InvalidPathException e) {
                         log("Invalid path:" + filename, e);
-                        writer.write(getOutputFormat(filename, 0));
+                        hashWriter.failed(filename);
                     } catch (IOException e) {
                         log("Read or write error occurred", e);
-                        writer.write(getOutputFormat(filename, 0));
+                        hashWriter.failed(filename);
                     }
                     filename = reader.readLine();
                 }
+                hashWriter.finish();
             } catch (FileNotFoundException e) {
                 log("No such output file", e);
             } catch (IOException e) {
@@ -86,18 +170,27 @@ public class RecursiveWalk {
         } catch (IOException e) {
             log("Read or write error occurred with input file", e);
         }
+
+        if (cache != null) {
+            log("Hash cache hits: " + cache.getHits() + ", misses: " + cache.getMisses());
+            try {
+                cache.save();
+            } catch (IOException e) {
+                log("Can not save hash cache", e);
+            }
+        }
     }
 
     private static class MyVisitor extends SimpleFileVisitor<Path> {
-        private final Writer writer;
+        private final HashWriter writer;
 
-        private MyVisitor(Writer writer) {
+        private MyVisitor(HashWriter writer) {
             this.writer = writer;
         }
 
         @Override
         public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-            writer.write(hash(file.toString()));
+            writer.file(file, attrs);
             return FileVisitResult.CONTINUE;
         }
     }
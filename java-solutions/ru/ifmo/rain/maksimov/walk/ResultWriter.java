@@ -0,0 +1,128 @@
+package ru.ifmo.rain.maksimov.walk;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Buffered {@link Writer} that formats walk result lines straight into its buffer.
+ * Line written by {@link #writeResult(byte[], String)} is the same as
+ * {@link ru.ifmo.rain.maksimov.utils.Helper#getOutputFormat(String, byte[])} returns.
+ */
+class ResultWriter extends Writer {
+    /**
+     * Default size of the buffer in chars
+     */
+    static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+    /**
+     * Minimal size of the buffer in chars
+     */
+    static final int MIN_BUFFER_SIZE = 1 << 8;
+    private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    private final Writer out;
+    private final char[] buf;
+    private int size;
+
+    ResultWriter(Writer out) {
+        this(out, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates writer with given buffer size, buffer is flushed to {@code out} only when it is full
+     *
+     * @param out        writer to write to
+     * @param bufferSize size of the buffer in chars, at least {@value #MIN_BUFFER_SIZE}
+     */
+    ResultWriter(Writer out, int bufferSize) {
+        if (bufferSize < MIN_BUFFER_SIZE) {
+            throw new IllegalArgumentException("buffer size should be >= " + MIN_BUFFER_SIZE);
+        }
+        this.out = out;
+        buf = new char[bufferSize];
+    }
+
+    /**
+     * Writes hex digits of every byte of hash, space, filename and line separator
+     *
+     * @param hash     hash of the file
+     * @param filename name of the file
+     * @throws IOException if an I/O error occurs
+     */
+    void writeResult(byte[] hash, String filename) throws IOException {
+        final int length = 2 * hash.length + 1 + filename.length() + LINE_SEPARATOR.length();
+        if (size + length > buf.length) {
+            flushBuffer();
+            if (length > buf.length) {
+                writeHex(hash);
+                buf[size++] = ' ';
+                write(filename);
+                write(LINE_SEPARATOR);
+                return;
+            }
+        }
+        writeHex(hash);
+        buf[size++] = ' ';
+        filename.getChars(0, filename.length(), buf, size);
+        size += filename.length();
+        LINE_SEPARATOR.getChars(0, LINE_SEPARATOR.length(), buf, size);
+        size += LINE_SEPARATOR.length();
+    }
+
+    private void writeHex(byte[] hash) {
+        for (byte b : hash) {
+            buf[size++] = DIGITS[(b >> 4) & 0xf];
+            buf[size++] = DIGITS[b & 0xf];
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (size > 0) {
+            out.write(buf, 0, size);
+            size = 0;
+        }
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        if (len >= buf.length) {
+            flushBuffer();
+            out.write(cbuf, off, len);
+            return;
+        }
+        if (size + len > buf.length) {
+            flushBuffer();
+        }
+        System.arraycopy(cbuf, off, buf, size, len);
+        size += len;
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        if (len >= buf.length) {
+            flushBuffer();
+            out.write(str, off, len);
+            return;
+        }
+        if (size + len > buf.length) {
+            flushBuffer();
+        }
+        str.getChars(off, off + len, buf, size);
+        size += len;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBuffer();
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package ru.ifmo.rain.maksimov.walk;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 64-bit xxHash with zero seed
+ */
+class XxHash64HashFunction implements HashFunction {
+    private static final long P1 = 0x9E3779B185EBCA87L;
+    private static final long P2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long P3 = 0x165667B19E3779F9L;
+    private static final long P4 = 0x85EBCA77C2B2AE63L;
+    private static final long P5 = 0x27D4EB2F165667C5L;
+    private static final int STRIPE = 32;
+
+    @Override
+    public String getName() {
+        return "xxhash64";
+    }
+
+    @Override
+    public int getLength() {
+        return Long.BYTES;
+    }
+
+    @Override
+    public Hasher newHasher() {
+        return new XxHasher();
+    }
+
+    private static long round(long acc, long input) {
+        return Long.rotateLeft(acc + input * P2, 31) * P1;
+    }
+
+    private static long merge(long acc, long v) {
+        return (acc ^ round(0, v)) * P1 + P4;
+    }
+
+    private static class XxHasher implements Hasher {
+        private long v1 = P1 + P2;
+        private long v2 = P2;
+        private long v3 = 0;
+        private long v4 = -P1;
+        private long total;
+        private final ByteBuffer stripe = ByteBuffer.allocate(STRIPE).order(ByteOrder.LITTLE_ENDIAN);
+
+        @Override
+        public void update(ByteBuffer buf) {
+            final ByteBuffer in = buf.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            total += in.remaining();
+            if (stripe.position() > 0) {
+                while (stripe.hasRemaining() && in.hasRemaining()) {
+                    stripe.put(in.get());
+                }
+                if (stripe.hasRemaining()) {
+                    return;
+                }
+                consume(stripe, 0);
+                stripe.clear();
+            }
+            int i = in.position();
+            for (final int end = in.limit(); i + STRIPE <= end; i += STRIPE) {
+                consume(in, i);
+            }
+            in.position(i);
+            stripe.put(in);
+        }
+
+        private void consume(ByteBuffer in, int i) {
+            v1 = round(v1, in.getLong(i));
+            v2 = round(v2, in.getLong(i + 8));
+            v3 = round(v3, in.getLong(i + 16));
+            v4 = round(v4, in.getLong(i + 24));
+        }
+
+        @Override
+        public byte[] digest() {
+            long h;
+            if (total >= STRIPE) {
+                h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+                h = merge(h, v1);
+                h = merge(h, v2);
+                h = merge(h, v3);
+                h = merge(h, v4);
+            } else {
+                h = P5;
+            }
+            h += total;
+
+            final int end = stripe.position();
+            int i = 0;
+            for (; i + Long.BYTES <= end; i += Long.BYTES) {
+                h = Long.rotateLeft(h ^ round(0, stripe.getLong(i)), 27) * P1 + P4;
+            }
+            if (i + Integer.BYTES <= end) {
+                h = Long.rotateLeft(h ^ (stripe.getInt(i) & 0xffffffffL) * P1, 23) * P2 + P3;
+                i += Integer.BYTES;
+            }
+            for (; i < end; i++) {
+                h = Long.rotateLeft(h ^ (stripe.get(i) & 0xff) * P5, 11) * P1;
+            }
+
+            h ^= h >>> 33;
+            h *= P2;
+            h ^= h >>> 29;
+            h *= P3;
+            h ^= h >>> 32;
+            return ByteBuffer.allocate(Long.BYTES).putLong(h).array();
+        }
+    }
+}